@@ -0,0 +1,123 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A benchmark of scanning a directory.  The directory scanned is a
+ * fixture generated in a temporary directory before the benchmark
+ * runs, with the given number of files spread over nested
+ * directories, and it is deleted afterwards.  After the first scan,
+ * the fixture is in the page cache, so the benchmark measures the
+ * scanner rather than the disk.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiskUsageBench
+{
+    private final static int FAN_OUT = 16;
+    private final static int FILES_PER_DIRECTORY = 64;
+
+    @Param({ "10000" })
+    public int files;
+
+    private File fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+	fixture = Files.createTempDirectory("dutmv").toFile();
+	Random random = new Random(files);
+	fill(fixture, files, random);
+    }
+
+    /**
+     * Create files in a directory, placing some directly within it and
+     * dividing the rest among subdirectories.
+     */
+    private static void fill(File dir, int files, Random random)
+	throws IOException
+    {
+	int here = Math.min(files, FILES_PER_DIRECTORY);
+	for (int i = 0; i < here; i++) {
+	    RandomAccessFile f
+		= new RandomAccessFile(new File(dir, "file" + i), "rw");
+	    try {
+		f.setLength(random.nextInt(65536));
+	    }
+	    finally {
+		f.close();
+	    }
+	}
+	int rest = files - here;
+	int dirs = Math.min(FAN_OUT, (rest + FILES_PER_DIRECTORY - 1)
+			    / FILES_PER_DIRECTORY);
+	for (int i = 0; i < dirs; i++) {
+	    int share = rest / (dirs - i);
+	    File sub = new File(dir, "dir" + i);
+	    if (!sub.mkdir())
+		throw new IOException(sub + ": cannot create directory");
+	    fill(sub, share, random);
+	    rest -= share;
+	}
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+	Files.walkFileTree(fixture.toPath(), new SimpleFileVisitor<Path>() {
+		public FileVisitResult visitFile(Path file,
+						 BasicFileAttributes attrs)
+		    throws IOException
+		{
+		    Files.delete(file);
+		    return FileVisitResult.CONTINUE;
+		}
+
+		public FileVisitResult postVisitDirectory(Path dir,
+							  IOException e)
+		    throws IOException
+		{
+		    Files.delete(dir);
+		    return FileVisitResult.CONTINUE;
+		}
+	    });
+    }
+
+    /**
+     * Scan the fixture, recording every metric.
+     */
+    @Benchmark
+    public DiskUsageNode scan() throws IOException, InterruptedException {
+	return DiskUsage.scan(fixture, DiskUsage.NO_ARCHIVES);
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,86 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A benchmark of the time the viewer takes to start.  Each
+ * measurement runs the jar in a new virtual machine with the -x
+ * option, which exits as soon as the viewer is ready, so the time
+ * includes starting the virtual machine.  It is measured with and
+ * without the class data sharing archive made by the build.  The jar
+ * is found in the current directory unless the dutmv.jar system
+ * property names it.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBench
+{
+    @Param({ "on", "off" })
+    public String cds;
+
+    private ProcessBuilder builder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+	File jar = new File(System.getProperty("dutmv.jar", "dutmv.jar"));
+	if (!jar.isFile())
+	    throw new FileNotFoundException(jar.getPath());
+	String name = jar.getPath();
+	File jsa = new File(name.substring(0, name.length() - 4) + ".jsa");
+	ArrayList<String> command = new ArrayList<String>();
+	command.add(new File(System.getProperty("java.home"),
+			     "bin" + File.separator + "java").getPath());
+	if (cds.equals("on")) {
+	    if (!jsa.isFile())
+		throw new FileNotFoundException(jsa.getPath());
+	    command.add("-XX:SharedArchiveFile=" + jsa.getPath());
+	}
+	command.add("-jar");
+	command.add(jar.getPath());
+	command.add("-x");
+	builder = new ProcessBuilder(command);
+	builder.redirectErrorStream(true);
+	builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    }
+
+    /**
+     * Start the viewer and wait for it to exit.
+     */
+    @Benchmark
+    public int start() throws IOException, InterruptedException {
+	int status = builder.start().waitFor();
+	if (status != 0)
+	    throw new IOException("viewer exited with status " + status);
+	return status;
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,159 @@
+package org.mitre.treemap;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks of the tree map core: laying out trees of several shapes
+ * in windows of several sizes, painting a layout into an offscreen
+ * image, and finding the rectangle under a point.  Run them with the
+ * bench target of the build file.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeMapBench
+{
+    private final static int HGAP = 5;
+    private final static int VGAP = 5;
+    private final static int TEXT_HEIGHT = 15;
+    private final static int POINTS = 1024;
+
+    /**
+     * The shape of the tree: balanced with a fan-out of ten, one wide
+     * directory, one long chain, or fan-outs and sizes with heavy
+     * tails.  The trees are made by {@link TreeMapSyntheticTree}.
+     */
+    @Param({ "balanced", "wide", "deep", "zipf" })
+    public String shape;
+
+    @Param({ "100000" })
+    public int nodes;
+
+    @Param({ "800x500", "4096x4096" })
+    public String window;
+
+    private TreeMapNode root;
+    private int width, height;
+    private TreeMapLayout layout;
+    private BufferedImage image;
+    private Font font;
+    private int[] xs, ys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	root = create(shape, nodes);
+	int x = window.indexOf('x');
+	width = Integer.parseInt(window.substring(0, x));
+	height = Integer.parseInt(window.substring(x + 1));
+	layout = new TreeMapLayout(true, HGAP, VGAP);
+	layout.layout(root, 0, 0, width, height, TEXT_HEIGHT);
+	image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+	font = new Font(Font.DIALOG, Font.PLAIN, 12);
+	Random random = new Random(width * 31L + height);
+	xs = new int[POINTS];
+	ys = new int[POINTS];
+	for (int i = 0; i < POINTS; i++) {
+	    xs[i] = random.nextInt(width);
+	    ys[i] = random.nextInt(height);
+	}
+    }
+
+    /**
+     * Generate every node of a tree of the chosen shape and size.
+     */
+    @Benchmark
+    public int construct() {
+	return count(create(shape, nodes));
+    }
+
+    /**
+     * Lay out the tree in the window.
+     */
+    @Benchmark
+    public int layout() {
+	layout.layout(root, 0, 0, width, height, TEXT_HEIGHT);
+	return layout.size();
+    }
+
+    /**
+     * Paint the layout into an offscreen image.
+     */
+    @Benchmark
+    public BufferedImage paint() {
+	TreeMapRenderer.render(layout, image, 1.0, 1.0, font,
+			       Color.white, null);
+	return image;
+    }
+
+    /**
+     * Find the rectangle under a point, cycling through points spread
+     * over the window.
+     */
+    @Benchmark
+    public int hitTest() {
+	int i = next++ & (POINTS - 1);
+	return layout.getRectangleAt(xs[i], ys[i]);
+    }
+
+    /**
+     * Create a tree of the chosen shape and size.
+     */
+    static TreeMapNode create(String shape, int nodes) {
+	String spec = "nodes=" + nodes;
+	if (shape.equals("wide"))
+	    spec += ",fanout=" + (nodes - 1);
+	else if (shape.equals("deep"))
+	    spec += ",fanout=1";
+	else if (shape.equals("zipf"))
+	    spec += ",fanout=zipf:1.2:2000,size=lognormal:0:2";
+	return TreeMapSyntheticTree.parse(spec).createTree();
+    }
+
+    /**
+     * Count the nodes of a tree, so that all of them are generated.
+     */
+    private static int count(TreeMapNode node) {
+	int n = 0;
+	ArrayList<TreeMapNode> stack = new ArrayList<TreeMapNode>();
+	stack.add(node);
+	while (!stack.isEmpty()) {
+	    node = stack.remove(stack.size() - 1);
+	    n++;
+	    for (int i = node.getChildCount() - 1; i >= 0; i--)
+		stack.add(node.getChildAt(i));
+	}
+	return n;
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
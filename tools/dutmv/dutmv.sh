@@ -11,4 +11,14 @@ else
 fi
 DIR=`dirname "$COMMAND"`
 
+# Use the class data sharing archive made by the build, if any.  A
+# Java other than the one that wrote it, or a jar changed since, makes
+# the archive unusable, so start without it quietly in that case.
+JSA="${DIR}/${RELDIR}/dutmv.jsa"
+if test -f "$JSA"
+then
+  exec java -XX:SharedArchiveFile="$JSA" -Xshare:auto \
+    -Xlog:cds=off -Xlog:cds+dynamic=off \
+    -jar "${DIR}/${RELDIR}/dutmv.jar" "$@"
+fi
 exec java -jar "${DIR}/${RELDIR}/dutmv.jar" "$@"
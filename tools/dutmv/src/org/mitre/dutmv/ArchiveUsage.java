@@ -0,0 +1,979 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.zip.*;
+import javax.swing.*;
+import org.mitre.treemap.*;
+
+/**
+ * A tree map factory for the entries in zip, jar and tar files.  The
+ * central directory of a zip file is read through a memory mapped
+ * channel, so nothing is decompressed.  A tar file is read by
+ * streaming through its headers and skipping the data.  Archives
+ * within an archive are optionally expanded as subtrees, to a
+ * limited depth.
+ * <p>
+ * The size of an entry is the number of bytes it takes in the
+ * archive, so the sizes of the entries add up to no more than the
+ * size of the archive.  Its expanded size is its uncompressed size.
+ * Entries in a compressed tar file, whose compressed sizes are not
+ * known, are scaled to fit the size of the file.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+class ArchiveUsage
+    implements TreeMapRefreshFactory
+{
+    final static Color ARCHIVE_COLOR = new Color(255, 250, 205);
+    private final static int MAX_DEPTH = 4; // of nested archives
+    private final static int POLL_ENTRIES = 1024;
+
+    private final boolean nested;
+    private final JFrame frame;
+    private JFileChooser chooser; // created when first needed
+    private volatile File archive; // archive last scanned
+
+    /**
+     * Create a factory for archives.
+     * @param archive archive initially scanned by refreshTree
+     * @param nested true if archives within archives are expanded
+     * @param frame parent of the file dialog
+     */
+    ArchiveUsage(File archive, boolean nested, JFrame frame) {
+	this.archive = archive;
+	this.nested = nested;
+	this.frame = frame;
+    }
+
+    /**
+     * Create a tree that shows the entries in an archive selected
+     * with a dialog.
+     */
+    public TreeMapNode createTree() {
+	if (chooser == null) {
+	    chooser = new JFileChooser();
+	    chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+	}
+	chooser.setSelectedFile(archive);
+	if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+	    return null;
+	archive = chooser.getSelectedFile();
+	return refreshTree();
+    }
+
+    /**
+     * Create a tree that shows the entries in the archive last
+     * selected.
+     */
+    public TreeMapNode refreshTree() {
+	File file = archive;
+	if (file == null)
+	    return null;
+	try {
+	    return createArchiveTree(file, DiskUsage.blockSize(file),
+				     System.currentTimeMillis(), nested);
+	}
+	catch (InterruptedException ie) {
+	    return null;
+	}
+	catch (IOException ioe) {
+	    throw new RuntimeException(file + ": " + ioe.getMessage(), ioe);
+	}
+    }
+
+    // Archive types recognized by name.
+
+    private final static String[] ZIP_SUFFIXES = {
+	".zip", ".jar", ".war", ".ear"
+    };
+    private final static String[] TAR_SUFFIXES = {
+	".tar"
+    };
+    private final static String[] TGZ_SUFFIXES = {
+	".tgz", ".tar.gz"
+    };
+
+    private static boolean endsWith(String name, String[] suffixes) {
+	name = name.toLowerCase(Locale.ROOT);
+	for (int i = 0; i < suffixes.length; i++)
+	    if (name.endsWith(suffixes[i]))
+		return true;
+	return false;
+    }
+
+    private static boolean isZip(String name) {
+	return endsWith(name, ZIP_SUFFIXES);
+    }
+
+    /**
+     * Is a file or entry an archive this factory can read?
+     */
+    static boolean isArchive(String name) {
+	return isZip(name) || endsWith(name, TAR_SUFFIXES)
+	    || endsWith(name, TGZ_SUFFIXES);
+    }
+
+    /**
+     * Create a node for an archive file with its entries as children.
+     * @param file the archive
+     * @param blockSize block size of the file system holding it
+     * @param now time used to compute ages
+     * @param nested true if archives within it are expanded
+     */
+    static DiskUsageNode createArchiveTree(File file, long blockSize,
+					   long now, boolean nested)
+	throws IOException, InterruptedException
+    {
+	Scan scan = new Scan(nested, now);
+	Entry root = new Entry(file.getName());
+	long length = file.length();
+	root.setFile(length, length, file.lastModified(), now);
+	root.weights[DiskUsage.BLOCKS]
+	    = (length + blockSize - 1) / blockSize * blockSize;
+	String name = file.getName();
+	if (isZip(name)) {
+	    FileInputStream in = new FileInputStream(file);
+	    try {
+		readZip(in.getChannel(), 0, length, root, scan, 0);
+	    }
+	    finally {
+		in.close();
+	    }
+	}
+	else {
+	    InputStream in
+		= new BufferedInputStream(new FileInputStream(file));
+	    try {
+		readStream(name, in, root, scan, 0);
+	    }
+	    finally {
+		in.close();
+	    }
+	}
+	root.archive = true;
+	root.total();
+	return root.toNode();
+    }
+
+    /**
+     * The state of a scan.
+     */
+    private static class Scan
+    {
+	final boolean nested;
+	final long now;
+	int entries;
+
+	Scan(boolean nested, long now) {
+	    this.nested = nested;
+	    this.now = now;
+	}
+
+	/**
+	 * Count an entry, now and then polling for interrupts and
+	 * publishing progress.
+	 */
+	void entry(String name) throws InterruptedException {
+	    if (++entries % POLL_ENTRIES != 0)
+		return;
+	    if (Thread.interrupted())
+		throw new InterruptedException("Interrupt detected by "
+					       + "polling");
+	    TreeMapProgress.publish(name);
+	}
+    }
+
+    /**
+     * An entry in an archive, or a directory implied by the names of
+     * entries.  The tree of entries is converted into disk usage
+     * nodes once the whole archive has been read.
+     */
+    private static class Entry
+    {
+	final String name;
+	final double[] weights = new double[DiskUsage.METRIC_NAMES.length];
+	java.util.TreeMap<String, Entry> children; // null for a file
+	boolean archive;	// a file expanded as an archive
+
+	Entry(String name) {
+	    this.name = name;
+	}
+
+	/**
+	 * Find or make the entry at a path below this one, making the
+	 * directories on the way.
+	 */
+	Entry add(String path, boolean directory) {
+	    Entry e = this;
+	    int start = 0;
+	    int n = path.length();
+	    while (start < n) {
+		int end = path.indexOf('/', start);
+		if (end < 0)
+		    end = n;
+		String part = path.substring(start, end);
+		start = end + 1;
+		if (part.length() == 0 || part.equals("."))
+		    continue;
+		boolean last = start >= n;
+		e = e.child(part, directory || !last);
+	    }
+	    return e;
+	}
+
+	private Entry child(String part, boolean directory) {
+	    if (children == null)
+		children = new java.util.TreeMap<String, Entry>();
+	    Entry e = children.get(part);
+	    if (e == null) {
+		e = new Entry(part);
+		children.put(part, e);
+	    }
+	    if (directory && e.children == null) {
+		e.children = new java.util.TreeMap<String, Entry>();
+		e.weights[DiskUsage.FILES] = 1;
+	    }
+	    return e;
+	}
+
+	/**
+	 * Set the weights of a file.
+	 * @param stored bytes taken in the archive
+	 * @param expanded bytes when extracted
+	 * @param modified time last modified or zero if unknown
+	 * @param now time used to compute ages
+	 */
+	void setFile(long stored, long expanded, long modified, long now) {
+	    stored = Math.max(stored, 0);
+	    double age = modified <= 0 ? 0.0
+		: Math.max(now - modified, 0) / DiskUsage.MILLISECONDS_PER_DAY;
+	    weights[DiskUsage.SIZE] += stored;
+	    weights[DiskUsage.BLOCKS] += stored;
+	    weights[DiskUsage.FILES] = 1;
+	    weights[DiskUsage.AGE] += stored * age;
+	    weights[DiskUsage.EXPANDED] += Math.max(expanded, 0);
+	}
+
+	/**
+	 * Add the weights of the children into the weights of this
+	 * entry.  An archive keeps its own size when its entries add
+	 * up to more, and its entries are scaled to fit.
+	 */
+	void total() {
+	    if (children == null)
+		return;
+	    double[] sum = new double[weights.length];
+	    for (Iterator<Entry> i = children.values().iterator();
+		 i.hasNext(); ) {
+		Entry e = i.next();
+		e.total();
+		for (int m = 0; m < sum.length; m++)
+		    sum[m] += e.weights[m];
+	    }
+	    if (!archive) {
+		for (int m = 0; m < sum.length; m++)
+		    weights[m] += sum[m];
+		return;
+	    }
+	    fit(DiskUsage.SIZE, sum[DiskUsage.SIZE]);
+	    fit(DiskUsage.BLOCKS, sum[DiskUsage.BLOCKS]);
+	    weights[DiskUsage.FILES] += sum[DiskUsage.FILES];
+	    weights[DiskUsage.AGE]
+		= Math.max(weights[DiskUsage.AGE], sum[DiskUsage.AGE]);
+	    weights[DiskUsage.EXPANDED]
+		= Math.max(weights[DiskUsage.EXPANDED],
+			   sum[DiskUsage.EXPANDED]);
+	}
+
+	/**
+	 * Scale the children of an archive so that their weights
+	 * under a metric add up to no more than the archive's.
+	 */
+	private void fit(int metric, double sum) {
+	    if (sum > weights[metric] && sum > 0.0)
+		for (Iterator<Entry> i = children.values().iterator();
+		     i.hasNext(); )
+		    i.next().scale(metric, weights[metric] / sum);
+	}
+
+	private void scale(int metric, double ratio) {
+	    weights[metric] *= ratio;
+	    if (children != null)
+		for (Iterator<Entry> i = children.values().iterator();
+		     i.hasNext(); )
+		    i.next().scale(metric, ratio);
+	}
+
+	DiskUsageNode toNode() {
+	    DiskUsageNode node = new DiskUsageNode(name);
+	    if (archive)
+		node.setColor(ARCHIVE_COLOR);
+	    else if (children != null)
+		node.setColor(DiskUsage.DIRECTORY_COLOR);
+	    else
+		node.setColor(DiskUsage.FILE_COLOR);
+	    node.setWeights(weights);
+	    if (children != null && children.size() > 0) {
+		DiskUsageNode[] kids = new DiskUsageNode[children.size()];
+		int k = 0;
+		for (Iterator<Entry> i = children.values().iterator();
+		     i.hasNext(); ) {
+		    DiskUsageNode kid = i.next().toNode();
+		    kid.setParent(node);
+		    kids[k++] = kid;
+		}
+		node.setChildren(kids);
+	    }
+	    return node;
+	}
+    }
+
+    /**
+     * Read an archive from a stream, choosing the format by name.
+     * Zip files read this way are decompressed as they stream by.
+     */
+    private static void readStream(String name, InputStream in,
+				   Entry root, Scan scan, int depth)
+	throws IOException, InterruptedException
+    {
+	if (isZip(name))
+	    readZipStream(in, root, scan, depth);
+	else if (endsWith(name, TGZ_SUFFIXES))
+	    readTar(new GZIPInputStream(in), root, scan, depth);
+	else
+	    readTar(in, root, scan, depth);
+    }
+
+    /**
+     * Expand an archive within an archive, leaving the entry a plain
+     * file if it cannot be read.
+     */
+    private static void expand(Entry entry, Scan scan, Expander expander)
+	throws InterruptedException
+    {
+	entry.children = new java.util.TreeMap<String, Entry>();
+	entry.archive = true;
+	try {
+	    expander.expand();
+	}
+	catch (IOException ioe) {
+	    entry.children = null;
+	    entry.archive = false;
+	}
+    }
+
+    private interface Expander
+    {
+	void expand() throws IOException, InterruptedException;
+    }
+
+    // Zip files
+
+    private final static int LOCAL_SIG = 0x04034b50;
+    private final static int CENTRAL_SIG = 0x02014b50;
+    private final static int END_SIG = 0x06054b50;
+    private final static int ZIP64_END_SIG = 0x06064b50;
+    private final static int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private final static int END_SIZE = 22;
+    private final static int ZIP64_LOCATOR_SIZE = 20;
+    private final static int ZIP64_END_SIZE = 56;
+    private final static int CENTRAL_SIZE = 46;
+    private final static int LOCAL_SIZE = 30;
+    private final static int MAX_COMMENT = 0xffff;
+    private final static int ZIP64_EXTRA = 0x0001;
+    private final static int TIME_EXTRA = 0x5455;
+    private final static int UTF8_FLAG = 1 << 11;
+    private final static long MAX_32 = 0xffffffffL;
+    private final static Charset DOS_CHARSET = dosCharset();
+
+    private static Charset dosCharset() {
+	try {
+	    return Charset.forName("IBM437");
+	}
+	catch (RuntimeException ex) {
+	    return StandardCharsets.ISO_8859_1;
+	}
+    }
+
+    private static ByteBuffer map(FileChannel ch, long position, long size)
+	throws IOException
+    {
+	if (size > Integer.MAX_VALUE)
+	    throw new ZipException("region too large to map");
+	ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, position, size);
+	return b.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int u16(ByteBuffer b, int i) {
+	return b.getShort(i) & 0xffff;
+    }
+
+    private static long u32(ByteBuffer b, int i) {
+	return b.getInt(i) & MAX_32;
+    }
+
+    /**
+     * Read the central directory of a zip file that occupies a region
+     * of a channel.
+     * @param ch the channel
+     * @param base position of the zip file in the channel
+     * @param length length of the zip file
+     */
+    private static void readZip(final FileChannel ch, final long base,
+				long length, Entry root,
+				final Scan scan, final int depth)
+	throws IOException, InterruptedException
+    {
+	// Find the end of central directory record.
+	int tail = (int)Math.min(length,
+				 END_SIZE + MAX_COMMENT + ZIP64_LOCATOR_SIZE);
+	if (tail < END_SIZE)
+	    throw new ZipException("not a zip file");
+	ByteBuffer b = map(ch, base + length - tail, tail);
+	int end = -1;
+	for (int i = tail - END_SIZE; i >= 0; i--)
+	    if (b.getInt(i) == END_SIG) {
+		end = i;
+		break;
+	    }
+	if (end < 0)
+	    throw new ZipException("no end of central directory");
+	long count = u16(b, end + 10);
+	long size = u32(b, end + 12);
+	long offset = u32(b, end + 16);
+	int locator = end - ZIP64_LOCATOR_SIZE;
+	if (locator >= 0 && b.getInt(locator) == ZIP64_LOCATOR_SIG) {
+	    long z = b.getLong(locator + 8);
+	    if (z < 0 || z + ZIP64_END_SIZE > length)
+		throw new ZipException("bad zip64 end record offset");
+	    ByteBuffer z64 = map(ch, base + z, ZIP64_END_SIZE);
+	    if (z64.getInt(0) != ZIP64_END_SIG)
+		throw new ZipException("bad zip64 end record");
+	    count = z64.getLong(32);
+	    size = z64.getLong(40);
+	    offset = z64.getLong(48);
+	}
+	if (offset < 0 || size < 0 || offset + size > length)
+	    throw new ZipException("bad central directory");
+
+	ByteBuffer cd = map(ch, base + offset, size);
+	int p = 0;
+	for (long k = 0; k < count; k++) {
+	    if (p + CENTRAL_SIZE > size || cd.getInt(p) != CENTRAL_SIG)
+		throw new ZipException("bad central directory entry");
+	    int flags = u16(cd, p + 8);
+	    final int method = u16(cd, p + 10);
+	    long modified = dosTime(u16(cd, p + 14), u16(cd, p + 12));
+	    long csize = u32(cd, p + 20);
+	    long usize = u32(cd, p + 24);
+	    int nameLength = u16(cd, p + 28);
+	    int extraLength = u16(cd, p + 30);
+	    int commentLength = u16(cd, p + 32);
+	    long local = u32(cd, p + 42);
+	    int q = p + CENTRAL_SIZE;
+	    if (q + nameLength + extraLength > size)
+		throw new ZipException("bad central directory entry");
+	    byte[] bytes = new byte[nameLength];
+	    cd.position(q);
+	    cd.get(bytes);
+	    final String name = new String(bytes, (flags & UTF8_FLAG) != 0
+					   ? StandardCharsets.UTF_8
+					   : DOS_CHARSET);
+	    // Scan the extra fields for zip64 sizes and unix times.
+	    int x = q + nameLength;
+	    int xend = x + extraLength;
+	    while (x + 4 <= xend) {
+		int id = u16(cd, x);
+		int n = u16(cd, x + 2);
+		int y = x + 4;
+		if (y + n > xend)
+		    break;
+		if (id == ZIP64_EXTRA) {
+		    if (usize == MAX_32 && y + 8 <= x + 4 + n) {
+			usize = cd.getLong(y);
+			y += 8;
+		    }
+		    if (csize == MAX_32 && y + 8 <= x + 4 + n) {
+			csize = cd.getLong(y);
+			y += 8;
+		    }
+		    if (local == MAX_32 && y + 8 <= x + 4 + n)
+			local = cd.getLong(y);
+		}
+		else if (id == TIME_EXTRA && n >= 5 && (cd.get(y) & 1) != 0)
+		    modified = u32(cd, y + 1) * 1000;
+		x += 4 + n;
+	    }
+	    p = xend + commentLength;
+
+	    scan.entry(name);
+	    boolean directory = name.endsWith("/");
+	    Entry e = root.add(name, directory);
+	    if (directory)
+		continue;
+	    e.setFile(csize, usize, modified, scan.now);
+	    if (scan.nested && depth < MAX_DEPTH && isArchive(name)) {
+		final long position = local;
+		final long compressed = csize;
+		final Entry entry = e;
+		final long limit = length;
+		expand(e, scan, new Expander() {
+			public void expand()
+			    throws IOException, InterruptedException
+			{
+			    readNested(ch, base, limit, position, method,
+				       compressed, name, entry, scan,
+				       depth + 1);
+			}
+		    });
+	    }
+	}
+    }
+
+    /**
+     * Read an archive stored as an entry of a zip file.  A stored zip
+     * file is read in place through the channel; others are read as
+     * streams.
+     */
+    private static void readNested(FileChannel ch, long base, long length,
+				   long local, int method, long csize,
+				   String name, Entry entry, Scan scan,
+				   int depth)
+	throws IOException, InterruptedException
+    {
+	if (local < 0 || local + LOCAL_SIZE > length)
+	    throw new ZipException("bad local header offset");
+	ByteBuffer h = map(ch, base + local, LOCAL_SIZE);
+	if (h.getInt(0) != LOCAL_SIG)
+	    throw new ZipException("bad local header");
+	long data = local + LOCAL_SIZE + u16(h, 26) + u16(h, 28);
+	if (data + csize > length)
+	    throw new ZipException("entry extends past the archive");
+	if (method == ZipEntry.STORED && isZip(name)) {
+	    readZip(ch, base + data, csize, entry, scan, depth);
+	    return;
+	}
+	InputStream in = new BufferInputStream(map(ch, base + data, csize));
+	if (method == ZipEntry.STORED)
+	    readStream(name, in, entry, scan, depth);
+	else if (method == ZipEntry.DEFLATED) {
+	    Inflater inflater = new Inflater(true);
+	    try {
+		in = new InflaterInputStream(in, inflater);
+		readStream(name, new BufferedInputStream(in),
+			   entry, scan, depth);
+	    }
+	    finally {
+		inflater.end();
+	    }
+	}
+	else
+	    throw new ZipException("unsupported compression method");
+    }
+
+    /**
+     * Read a zip file from a stream, decompressing each entry to
+     * find its sizes when they follow the data.
+     */
+    private static void readZipStream(InputStream in, Entry root,
+				      final Scan scan, final int depth)
+	throws IOException, InterruptedException
+    {
+	final ZipInputStream zin = new ZipInputStream(new Unclosed(in));
+	try {
+	    ZipEntry ze;
+	    while ((ze = zin.getNextEntry()) != null) {
+		final String name = ze.getName();
+		scan.entry(name);
+		Entry e = root.add(name, ze.isDirectory());
+		if (ze.isDirectory())
+		    continue;
+		if (scan.nested && depth < MAX_DEPTH && isArchive(name)) {
+		    final Entry entry = e;
+		    expand(e, scan, new Expander() {
+			    public void expand()
+				throws IOException, InterruptedException
+			    {
+				readStream(name, new Unclosed(zin), entry,
+					   scan, depth + 1);
+			    }
+			});
+		}
+		zin.closeEntry();
+		e.setFile(ze.getCompressedSize(), ze.getSize(),
+			  ze.getTime(), scan.now);
+	    }
+	}
+	finally {
+	    zin.close();
+	}
+    }
+
+    /**
+     * Convert an MS-DOS date and time into milliseconds.
+     * @return the time or zero if it is invalid
+     */
+    private static long dosTime(int date, int time) {
+	try {
+	    LocalDateTime t
+		= LocalDateTime.of(((date >> 9) & 0x7f) + 1980,
+				   (date >> 5) & 0x0f, date & 0x1f,
+				   (time >> 11) & 0x1f, (time >> 5) & 0x3f,
+				   (time & 0x1f) * 2);
+	    return t.atZone(ZoneId.systemDefault()).toInstant()
+		.toEpochMilli();
+	}
+	catch (DateTimeException ex) {
+	    return 0;
+	}
+    }
+
+    // Tar files
+
+    private final static int BLOCK = 512;
+    private final static int MAX_NAME = 1 << 20; // longest long name
+
+    /**
+     * Read a tar file by streaming through its headers, skipping the
+     * data of all but nested archives.  GNU long names and POSIX
+     * extended headers are understood, and other GNU headers that
+     * describe no entry of their own are skipped.
+     */
+    private static void readTar(InputStream in, Entry root,
+				final Scan scan, final int depth)
+	throws IOException, InterruptedException
+    {
+	byte[] header = new byte[BLOCK];
+	String longName = null;	// from a GNU long name entry
+	String paxPath = null;	// from a POSIX extended header
+	long paxSize = -1;
+	for (;;) {
+	    if (!readFully(in, header) || isZero(header))
+		return;		// end of archive
+	    char type = (char)header[156];
+	    long size = paxSize >= 0 ? paxSize : number(header, 124, 12);
+	    long skip = (size + BLOCK - 1) / BLOCK * BLOCK;
+	    if (type == 'L') {
+		longName = trim(readString(in, size));
+		skipFully(in, skip - size);
+		continue;
+	    }
+	    else if (type == 'x') {
+		String pax = readString(in, size);
+		skipFully(in, skip - size);
+		paxPath = paxValue(pax, "path");
+		String s = paxValue(pax, "size");
+		try {
+		    paxSize = s == null ? -1 : Long.parseLong(s);
+		}
+		catch (NumberFormatException ex) {
+		    throw new IOException("bad pax size");
+		}
+		continue;
+	    }
+	    else if (type == 'g' || type == 'K' || type == 'V'
+		     || type == 'M' || type == 'N') {
+		// Global headers, GNU long link names, volume labels,
+		// continuations, and old style long names are not entries.
+		skipFully(in, skip);
+		continue;
+	    }
+	    final String name = longName != null ? longName
+		: paxPath != null ? paxPath : headerName(header);
+	    longName = paxPath = null;
+	    paxSize = -1;
+	    scan.entry(name);
+	    boolean directory = type == '5' || name.endsWith("/");
+	    Entry e = root.add(name, directory);
+	    if (directory) {
+		skipFully(in, skip);
+		continue;
+	    }
+	    boolean data = type == '0' || type == '\0' || type == '7';
+	    long stored = data ? size : 0;
+	    e.setFile(stored, stored, number(header, 136, 12) * 1000,
+		      scan.now);
+	    if (data && scan.nested && depth < MAX_DEPTH && isArchive(name)) {
+		final Entry entry = e;
+		final BoundedInputStream bounded
+		    = new BoundedInputStream(in, size);
+		expand(e, scan, new Expander() {
+			public void expand()
+			    throws IOException, InterruptedException
+			{
+			    readStream(name, bounded, entry, scan, depth + 1);
+			}
+		    });
+		skipFully(in, skip - bounded.consumed);
+	    }
+	    else
+		skipFully(in, skip);
+	}
+    }
+
+    private static String headerName(byte[] header) {
+	String name = field(header, 0, 100);
+	if (field(header, 257, 5).equals("ustar")) {
+	    String prefix = field(header, 345, 155);
+	    if (prefix.length() > 0)
+		name = prefix + "/" + name;
+	}
+	return name;
+    }
+
+    /**
+     * Get a NUL terminated string from a header.
+     */
+    private static String field(byte[] header, int offset, int length) {
+	int end = offset;
+	while (end < offset + length && header[end] != 0)
+	    end++;
+	return new String(header, offset, end - offset,
+			  StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get a number from a header, written in octal or, when the
+     * first byte has its high bit set, in base 256.
+     */
+    private static long number(byte[] header, int offset, int length) {
+	long n = 0;
+	if ((header[offset] & 0x80) != 0) {
+	    n = header[offset] & 0x3f;
+	    for (int i = offset + 1; i < offset + length; i++)
+		n = (n << 8) | (header[i] & 0xff);
+	    return n;
+	}
+	for (int i = offset; i < offset + length; i++) {
+	    int c = header[i];
+	    if (c >= '0' && c <= '7')
+		n = (n << 3) | (c - '0');
+	    else if (c != ' ' || n != 0)
+		break;
+	}
+	return n;
+    }
+
+    private static boolean isZero(byte[] block) {
+	for (int i = 0; i < block.length; i++)
+	    if (block[i] != 0)
+		return false;
+	return true;
+    }
+
+    /**
+     * Find the value of a key in the records of a POSIX extended
+     * header.  Each record has the form "length key=value\n".
+     */
+    private static String paxValue(String pax, String key) {
+	int i = 0;
+	while (i < pax.length()) {
+	    int space = pax.indexOf(' ', i);
+	    if (space < 0)
+		break;
+	    int n;
+	    try {
+		n = Integer.parseInt(pax.substring(i, space));
+	    }
+	    catch (NumberFormatException ex) {
+		break;
+	    }
+	    if (n <= 0 || i + n > pax.length())
+		break;
+	    String record = pax.substring(space + 1, i + n - 1);
+	    int eq = record.indexOf('=');
+	    if (eq > 0 && record.substring(0, eq).equals(key))
+		return record.substring(eq + 1);
+	    i += n;
+	}
+	return null;
+    }
+
+    private static String trim(String s) {
+	int end = s.indexOf('\0');
+	return end < 0 ? s : s.substring(0, end);
+    }
+
+    private static String readString(InputStream in, long size)
+	throws IOException
+    {
+	if (size < 0 || size > MAX_NAME)
+	    throw new IOException("bad tar header size");
+	byte[] b = new byte[(int)size];
+	if (!readFully(in, b))
+	    throw new EOFException("truncated tar file");
+	return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fill an array from a stream.
+     * @return false if the stream is already at its end
+     */
+    private static boolean readFully(InputStream in, byte[] b)
+	throws IOException
+    {
+	int n = 0;
+	while (n < b.length) {
+	    int k = in.read(b, n, b.length - n);
+	    if (k < 0) {
+		if (n == 0)
+		    return false;
+		throw new EOFException("truncated tar file");
+	    }
+	    n += k;
+	}
+	return true;
+    }
+
+    private static void skipFully(InputStream in, long n)
+	throws IOException
+    {
+	while (n > 0) {
+	    long k = in.skip(n);
+	    if (k <= 0) {
+		if (in.read() < 0)
+		    throw new EOFException("truncated tar file");
+		k = 1;
+	    }
+	    n -= k;
+	}
+    }
+
+    // Streams
+
+    /**
+     * A stream over the remaining bytes of a buffer.
+     */
+    private static class BufferInputStream
+	extends InputStream
+    {
+	private final ByteBuffer b;
+
+	BufferInputStream(ByteBuffer b) {
+	    this.b = b;
+	}
+
+	public int read() {
+	    return b.hasRemaining() ? b.get() & 0xff : -1;
+	}
+
+	public int read(byte[] dst, int off, int len) {
+	    if (len == 0)
+		return 0;
+	    if (!b.hasRemaining())
+		return -1;
+	    len = Math.min(len, b.remaining());
+	    b.get(dst, off, len);
+	    return len;
+	}
+
+	public long skip(long n) {
+	    int k = (int)Math.max(0, Math.min(n, b.remaining()));
+	    b.position(b.position() + k);
+	    return k;
+	}
+
+	public int available() {
+	    return b.remaining();
+	}
+    }
+
+    /**
+     * A stream whose close leaves the underlying stream open.
+     */
+    private static class Unclosed
+	extends FilterInputStream
+    {
+	Unclosed(InputStream in) {
+	    super(in);
+	}
+
+	public void close() {
+	}
+    }
+
+    /**
+     * A stream over the next bytes of another stream, which is left
+     * open when this one is closed.
+     */
+    private static class BoundedInputStream
+	extends FilterInputStream
+    {
+	private final long limit;
+	long consumed;
+
+	BoundedInputStream(InputStream in, long limit) {
+	    super(in);
+	    this.limit = limit;
+	}
+
+	public int read() throws IOException {
+	    if (consumed >= limit)
+		return -1;
+	    int c = in.read();
+	    if (c >= 0)
+		consumed++;
+	    return c;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+	    if (consumed >= limit)
+		return -1;
+	    len = (int)Math.min(len, limit - consumed);
+	    int n = in.read(b, off, len);
+	    if (n > 0)
+		consumed += n;
+	    return n;
+	}
+
+	public long skip(long n) throws IOException {
+	    long k = in.skip(Math.min(n, limit - consumed));
+	    if (k > 0)
+		consumed += k;
+	    return k;
+	}
+
+	public int available() throws IOException {
+	    return (int)Math.min(in.available(), limit - consumed);
+	}
+
+	public boolean markSupported() {
+	    return false;
+	}
+
+	public void close() {
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
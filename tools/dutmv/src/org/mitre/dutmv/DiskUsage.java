@@ -2,8 +2,11 @@ package org.mitre.dutmv;
 
 import java.util.Arrays;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 import org.mitre.treemap.*;
 
@@ -14,23 +17,45 @@ import org.mitre.treemap.*;
  * @author John D. Ramsdell
  */
 public class DiskUsage
-    implements TreeMapFactory
+    implements TreeMapRefreshFactory
 {
     private final static int WIDTH = 800;
     private final static int HEIGHT = 500;
     private final static int HGAP = 5;
     private final static int VGAP = 5;
-    private final static Color FILE_COLOR = Color.lightGray;
-    private final static Color DIRECTORY_COLOR = Color.white;
+    final static Color FILE_COLOR = Color.lightGray;
+    final static Color DIRECTORY_COLOR = Color.white;
 
-    private final JFileChooser chooser;
+    // Metrics recorded for each node.
+    final static int SIZE = 0;	// bytes in files
+    final static int BLOCKS = 1; // bytes allocated to files
+    final static int FILES = 2;	// files and directories
+    final static int AGE = 3;	// bytes times days since modified
+    final static int EXPANDED = 4; // bytes with archive entries extracted
+    final static String[] METRIC_NAMES = {
+	"Size", "Blocks", "Files", "Age", "Expanded"
+    };
+    private final static long DEFAULT_BLOCK_SIZE = 4096;
+    final static double MILLISECONDS_PER_DAY = 24 * 60 * 60 * 1000;
+
+    // How archives found while scanning are treated.
+    final static int NO_ARCHIVES = 0; // as files
+    private final static int ARCHIVES = 1;    // opened as subtrees
+    private final static int NESTED_ARCHIVES = 2; // and archives in them
+
+    private JFileChooser chooser; // created when first needed
     private final JProgressBar progress;
     private final JFrame frame;
+    private volatile File directory; // Directory last scanned
+    private final int archives;
+    private final boolean report; // print the profile of each scan
+    private volatile DiskUsageProfile profile; // of the last scan
 
-    DiskUsage(File directory, JProgressBar progress, JFrame frame) {
-	chooser = new JFileChooser();
-	chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-	chooser.setSelectedFile(directory);
+    DiskUsage(File directory, int archives, boolean report,
+	      JProgressBar progress, JFrame frame) {
+	this.directory = directory;
+	this.archives = archives;
+	this.report = report;
 	this.progress = progress;
 	this.frame = frame;
     }
@@ -41,51 +66,201 @@ public class DiskUsage
      * each directory and file in the directory.  The weight of each
      * file is the size of the file.  The weight of each directory is
      * the sum of the size of each file in the directory plus the
-     * weights of each directory in the directory.
+     * weights of each directory in the directory.  The same pass
+     * records the other metrics, which are summed the same way.
      */
     public TreeMapNode createTree() {
+	if (chooser == null) {
+	    chooser = new JFileChooser();
+	    chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+	    chooser.setSelectedFile(directory);
+	}
 	int result = chooser.showOpenDialog(frame);
 	if (result != JFileChooser.APPROVE_OPTION)
 	    return null;
-	File directory = chooser.getSelectedFile();
+	directory = chooser.getSelectedFile();
+	return refreshTree();
+    }
+
+    /**
+     * Create a tree that shows the current disk usage of the
+     * directory last selected, or the one given on the command line
+     * when none has been selected.
+     */
+    public TreeMapNode refreshTree() {
 	try {
 	    progress.setIndeterminate(true);
-	    return createDiskUsageTree(directory);
+	    DiskUsageProfile p = new DiskUsageProfile();
+	    DiskUsageNode tree = scan(directory, archives, p,
+				      new DiskUsageSnapshot());
+	    profile = p;
+	    if (report)
+		p.report(new PrintWriter(System.err));
+	    return tree;
 	}
 	catch (InterruptedException ie) {
 	    return null;
 	}
+	catch (IOException ioe) {
+	    throw new RuntimeException(directory + ": " + ioe.getMessage(),
+				       ioe);
+	}
 	finally {
 	    progress.setIndeterminate(false);
 	}
     }
 
-    private static DiskUsageNode createDiskUsageTree(File file)
-	throws InterruptedException
+    /**
+     * Show the profile of the last scan in a dialog.
+     */
+    private void showProfile() {
+	DiskUsageProfile p = profile;
+	JTextArea text = new JTextArea(p == null ? "No scan has finished."
+				       : p.toString());
+	text.setEditable(false);
+	text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+	JScrollPane pane = new JScrollPane(text);
+	pane.setPreferredSize(new Dimension(WIDTH, HEIGHT));
+	JOptionPane.showMessageDialog(frame, pane, "Scan Report",
+				      JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Make a button that shows the profile of the last scan.
+     */
+    private JButton reportButton() {
+	JButton button = new JButton("Report");
+	button.setToolTipText("Show where the time of the last scan went");
+	button.addActionListener(new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+		    showProfile();
+		}
+	    });
+	return button;
+    }
+
+    /**
+     * Scan a directory, recording every metric.
+     */
+    static DiskUsageNode scan(File directory, int archives)
+	throws IOException, InterruptedException
+    {
+	return scan(directory, archives, new DiskUsageProfile());
+    }
+
+    /**
+     * Scan a directory, recording every metric, and where the time
+     * went in a profile.
+     */
+    static DiskUsageNode scan(File directory, int archives,
+			      DiskUsageProfile profile)
+	throws IOException, InterruptedException
     {
+	return scan(directory, archives, profile, null);
+    }
+
+    /**
+     * Scan a directory, recording every metric, and where the time
+     * went in a profile.  When given a snapshot, the children of each
+     * directory are kept in it as soon as the directory has been
+     * scanned, so that memory is bounded during the scan as well as
+     * after it.  A snapshot is worth its writing only for a tree that
+     * is kept and viewed for a while.
+     * @param snapshot snapshot holding the children, or null
+     */
+    static DiskUsageNode scan(File directory, int archives,
+			      DiskUsageProfile profile,
+			      DiskUsageSnapshot snapshot)
+	throws IOException, InterruptedException
+    {
+	TreeMapStats.Scan stats = TreeMapStats.beginScan(directory.getPath());
+	DiskUsageNode tree
+	    = createDiskUsageTree(directory, blockSize(directory),
+				  System.currentTimeMillis(), archives,
+				  profile, snapshot);
+	profile.finish();
+	stats.end((long)tree.getWeight(FILES));
+	return tree;
+    }
+
+    /**
+     * Get the block size of the file system holding a file.
+     */
+    static long blockSize(File file) {
+	try {
+	    long size = Files.getFileStore(file.toPath()).getBlockSize();
+	    if (size > 0)
+		return size;
+	}
+	catch (IOException ioe) {
+	}
+	catch (UnsupportedOperationException uoe) {
+	}
+	return DEFAULT_BLOCK_SIZE;
+    }
+
+    private static DiskUsageNode
+	createDiskUsageTree(File file, long blockSize, long now,
+			    int archives, DiskUsageProfile profile,
+			    DiskUsageSnapshot snapshot)
+	throws IOException, InterruptedException
+    {
+	if (archives != NO_ARCHIVES && ArchiveUsage.isArchive(file.getName())
+	    && file.isFile()) {
+	    try {
+		return ArchiveUsage.createArchiveTree(file, blockSize, now,
+						      archives
+						      == NESTED_ARCHIVES);
+	    }
+	    catch (IOException ioe) {
+		// Show an unreadable archive as a file.
+	    }
+	}
 	DiskUsageNode parent = new DiskUsageNode(file.getName());
-	long weight = file.length(); // create base weight
-	if (file.isDirectory() && isCanonical(file)) {
+	long began = System.nanoTime();
+	long size = file.length();
+	long modified = file.lastModified();
+	boolean directory = file.isDirectory() && isCanonical(file);
+	profile.stat(System.nanoTime() - began);
+	double age = Math.max(now - modified, 0) / MILLISECONDS_PER_DAY;
+	double[] weights = new double[METRIC_NAMES.length];
+	weights[SIZE] = size;	// create base weights
+	weights[BLOCKS] = (size + blockSize - 1) / blockSize * blockSize;
+	weights[FILES] = 1;
+	weights[AGE] = size * age;
+	weights[EXPANDED] = size;
+	if (directory) {
 	    parent.setColor(DIRECTORY_COLOR);
 	    if (Thread.interrupted())
 		throw new InterruptedException("Interrupt detected by polling");
+	    TreeMapProgress.publish(file.getPath());
+	    DiskUsageProfile.Directory entries = profile.beginDirectory(file);
+	    began = System.nanoTime();
 	    File[] kids = file.listFiles(); // get children
+	    profile.list(entries, System.nanoTime() - began);
 	    if (kids != null	// This should always be the case, right?
 		&& kids.length > 0) {
 		Arrays.sort(kids); // sort by file name
 		DiskUsageNode[] children = new DiskUsageNode[kids.length];
 		for (int i = 0; i < kids.length; i++) {
-		    DiskUsageNode kid = createDiskUsageTree(kids[i]);
+		    DiskUsageNode kid
+			= createDiskUsageTree(kids[i], blockSize, now,
+					      archives, profile, snapshot);
 		    kid.setParent(parent);
-		    weight += kid.getWeight(); // add in child's weight
+		    for (int m = 0; m < weights.length; m++)
+			weights[m] += kid.getWeight(m); // add in child's
 		    children[i] = kid;
 		}
-		parent.setChildren(children);
+		if (snapshot == null)
+		    parent.setChildren(children);
+		else
+		    parent.setChildren(children, snapshot);
 	    }
+	    profile.endDirectory(entries);
 	}
 	else
 	    parent.setColor(FILE_COLOR);
-	parent.setWeight(weight);
+	parent.setWeights(weights);
 	return parent;
     }
 
@@ -102,44 +277,324 @@ public class DiskUsage
 	}
     }
 
+    private static void usage() {
+	System.out.println("Usage: java " + DiskUsage.class.getName()
+			   + " [-o file.png|file.svg] [-s WIDTHxHEIGHT]"
+			   + " [-r MINUTES] [-m METRIC] [-p] [-x] [-a] [-n]"
+			   + " [-g REVISION] [-t SPEC] [-d SOCKET] [-c SOCKET]"
+			   + " [pathname]");
+	System.out.println("Metrics: size, blocks, files, age, expanded");
+	System.out.println("Metrics of a .jfr recording: samples, allocated");
+	System.out.println("Metrics of a .hprof heap dump: retained, objects");
+	System.out.println("Synthetic tree SPEC: seed=N,nodes=N,depth=N,"
+			   + "fanout=DIST,size=DIST");
+	System.out.println("DIST: N, uniform:LOW:HIGH, lognormal:MU:SIGMA,"
+			   + " zipf:EXPONENT:MAX");
+	System.exit(1);
+    }
+
+    /**
+     * Scan a directory and write its tree map to a PNG or SVG file
+     * without opening a window.
+     */
+    private static void export(File file, File output, int width,
+			       int height, int metric, int archives,
+			       String revision, TreeMapFactory synthetic,
+			       File server, boolean report)
+	throws IOException, InterruptedException
+    {
+	TreeMapNode tree;
+	if (synthetic != null)
+	    tree = synthetic.createTree();
+	else if (server != null)
+	    tree = DiskUsageClient.createRemoteTree(server);
+	else if (revision != null)
+	    tree = GitUsage.createGitTree(file, revision,
+					  System.currentTimeMillis());
+	else if (file.isFile() && JfrUsage.isRecording(file.getName()))
+	    tree = JfrUsage.createJfrTree(file);
+	else if (file.isFile() && HprofUsage.isHeapDump(file.getName()))
+	    tree = HprofUsage.createHprofTree(file);
+	else if (file.isFile() && ArchiveUsage.isArchive(file.getName()))
+	    tree = ArchiveUsage.createArchiveTree(file, blockSize(file),
+						  System.currentTimeMillis(),
+						  archives == NESTED_ARCHIVES);
+	else {
+	    DiskUsageProfile profile = new DiskUsageProfile();
+	    tree = scan(file, archives, profile);
+	    if (report)
+		profile.report(new PrintWriter(System.err));
+	}
+	TreeMapExporter exporter
+	    = new TreeMapExporter(tree, true, HGAP, VGAP);
+	exporter.setMetric(metric);
+	exporter.write(output, width, height);
+    }
+
+    /**
+     * Report the time taken to start and exit.
+     */
+    private static void started() {
+	long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+	System.out.println("Started in " + uptime + " ms");
+	System.exit(0);
+    }
+
+    /**
+     * Lay out and paint a panel into an image, as its window would
+     * be painted, when there is no display.
+     */
+    private static void paintOffscreen(JPanel panel) {
+	panel.setSize(panel.getPreferredSize());
+	layoutAll(panel);
+	BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+						BufferedImage.TYPE_INT_RGB);
+	Graphics2D g = image.createGraphics();
+	try {
+	    panel.paint(g);
+	}
+	finally {
+	    g.dispose();
+	}
+    }
+
+    private static void layoutAll(Container c) {
+	c.doLayout();
+	for (int i = 0; i < c.getComponentCount(); i++)
+	    if (c.getComponent(i) instanceof Container)
+		layoutAll((Container)c.getComponent(i));
+    }
+
+    /**
+     * Find a metric by name, ignoring case.
+     * @return the metric or -1 if there is none by that name
+     */
+    private static int metric(String[] names, String name) {
+	for (int i = 0; i < names.length; i++)
+	    if (names[i].equalsIgnoreCase(name))
+		return i;
+	return -1;
+    }
+
+    /**
+     * Make a combo box that sets the metric of a tree map panel.
+     */
+    private static JComboBox<String> metricBox(final TreeMapPanel treeMap,
+					       String[] names, int metric) {
+	final JComboBox<String> box = new JComboBox<String>(names);
+	box.setSelectedIndex(metric);
+	box.setMaximumSize(box.getPreferredSize());
+	box.addActionListener(new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+		    treeMap.setMetric(box.getSelectedIndex());
+		}
+	    });
+	return box;
+    }
+
     /**
      * This is the main entry point for the Disk Usage Tree Map Viewer.
+     * With the -o option, the tree map is written to a file instead
+     * of being displayed.  With the -r option, the directory is
+     * scanned at once and rescanned every given number of minutes.
+     * The -m option chooses the metric giving the weights.  The -a
+     * option opens archives found while scanning as subtrees, and
+     * the -n option also opens archives within archives.  When the
+     * pathname names an archive, its entries are shown.  With the -g
+     * option, the pathname names a git repository, and its paths are
+     * shown weighted by their sizes in the history of a revision.
+     * When the pathname names a flight recording, its samples are
+     * shown by method, and when it names a heap dump, the sizes its
+     * objects retain are shown, each with metrics of their own.
+     * The -t option shows a generated tree instead of a pathname.
+     * With the -d option, the directory is scanned and its tree is
+     * served on a socket to viewers started with the -c option,
+     * rescanning every given number of minutes, or every hour.
+     * The -p option prints where the time of each scan went.  The -x
+     * option exits as soon as the viewer has started, printing the
+     * time it took, so startup can be measured.
      */
     public static void main(String[] args) {
 	String pathname = ".";
-	switch (args.length) {
+	String output = null;
+	int width = WIDTH;
+	int height = HEIGHT;
+	int refresh = 0;
+	String metricName = null;
+	int archives = NO_ARCHIVES;
+	String revision = null;
+	TreeMapSyntheticTree synthetic = null;
+	boolean report = false;
+	boolean startup = false;
+	File serve = null;	// socket served on
+	File server = null;	// socket of a server attached to
+	int i = 0;
+	for (; i < args.length && args[i].startsWith("-"); i++) {
+	    if (args[i].equals("-o") && i + 1 < args.length)
+		output = args[++i];
+	    else if (args[i].equals("-s") && i + 1 < args.length) {
+		String[] size = args[++i].split("x");
+		try {
+		    width = Integer.parseInt(size[0]);
+		    height = Integer.parseInt(size[1]);
+		}
+		catch (RuntimeException ex) {
+		    usage();
+		}
+		if (width <= 0 || height <= 0)
+		    usage();
+	    }
+	    else if (args[i].equals("-r") && i + 1 < args.length) {
+		try {
+		    refresh = Integer.parseInt(args[++i]);
+		}
+		catch (NumberFormatException ex) {
+		    usage();
+		}
+		if (refresh <= 0)
+		    usage();
+	    }
+	    else if (args[i].equals("-p"))
+		report = true;
+	    else if (args[i].equals("-x"))
+		startup = true;
+	    else if (args[i].equals("-a"))
+		archives = Math.max(archives, ARCHIVES);
+	    else if (args[i].equals("-n"))
+		archives = NESTED_ARCHIVES;
+	    else if (args[i].equals("-g") && i + 1 < args.length)
+		revision = args[++i];
+	    else if (args[i].equals("-t") && i + 1 < args.length) {
+		try {
+		    synthetic = TreeMapSyntheticTree.parse(args[++i]);
+		}
+		catch (IllegalArgumentException ex) {
+		    System.out.println(ex.getMessage());
+		    usage();
+		}
+	    }
+	    else if (args[i].equals("-m") && i + 1 < args.length)
+		metricName = args[++i];
+	    else if (args[i].equals("-d") && i + 1 < args.length)
+		serve = new File(args[++i]);
+	    else if (args[i].equals("-c") && i + 1 < args.length)
+		server = new File(args[++i]);
+	    else
+		usage();
+	}
+	switch (args.length - i) {
 	case 0:
 	    break;
 	case 1:
-	    pathname = args[0];
+	    pathname = args[i];
 	    break;
 	default:
-	    System.out.println("Usage: java " + DiskUsage.class.getName()
-			       + " [pathname]");
-	    System.exit(1);
+	    usage();
+	}
+	boolean recording = revision == null && server == null
+	    && JfrUsage.isRecording(pathname);
+	boolean heapDump = revision == null && server == null
+	    && HprofUsage.isHeapDump(pathname);
+	String[] names = METRIC_NAMES;
+	if (synthetic != null)
+	    names = new String[] { METRIC_NAMES[SIZE] };
+	else if (recording)
+	    names = JfrUsage.METRIC_NAMES;
+	else if (heapDump)
+	    names = HprofUsage.METRIC_NAMES;
+	int metric = 0;
+	if (metricName != null) {
+	    metric = metric(names, metricName);
+	    if (metric < 0)
+		usage();
+	}
+	TreeMapStats.registerLater();
+
+	if (serve != null) {
+	    System.setProperty("java.awt.headless", "true");
+	    try {
+		File file = new File(pathname).getCanonicalFile();
+		new DiskUsageServer(file, archives, report, serve)
+		    .serve(refresh > 0 ? refresh : 60);
+	    }
+	    catch (Throwable t) {
+		t.printStackTrace();
+		System.exit(1);
+	    }
+	}
+
+	if (output != null) {
+	    System.setProperty("java.awt.headless", "true");
+	    try {
+		File file = new File(pathname).getCanonicalFile();
+		export(file, new File(output), width, height, metric,
+		       archives, revision, synthetic, server, report);
+		System.exit(0);
+	    }
+	    catch (Throwable t) {
+		t.printStackTrace();
+		System.exit(1);
+	    }
 	}
 
 	try {
 	    File file = new File(pathname).getCanonicalFile();
-	    final JFrame frame = new JFrame("Disk Usage");
+	    // Without a display, starting up stops short of the window.
+	    final JFrame frame = startup && GraphicsEnvironment.isHeadless()
+		? null : new JFrame("Disk Usage");
 	    JProgressBar progress = new JProgressBar();
-	    DiskUsage du = new DiskUsage(file, progress, frame);
+	    TreeMapFactory factory;
+	    if (synthetic != null)
+		factory = synthetic;
+	    else if (server != null)
+		factory = new DiskUsageClient(server, frame);
+	    else if (revision != null)
+		factory = new GitUsage(file, revision, frame);
+	    else if (recording && file.isFile())
+		factory = new JfrUsage(file, frame);
+	    else if (heapDump && file.isFile())
+		factory = new HprofUsage(file, frame);
+	    else if (file.isFile() && ArchiveUsage.isArchive(file.getName()))
+		factory = new ArchiveUsage(file, archives == NESTED_ARCHIVES,
+					   frame);
+	    else
+		factory = new DiskUsage(file, archives, report, progress,
+					frame);
 	    JPanel panel = new JPanel();
 	    panel.setLayout(new BorderLayout());
 	    panel.setPreferredSize(new Dimension(WIDTH, HEIGHT));
 	    TreeMapPanel treeMap
-		= new TreeMapPanel(du, null, true, HGAP, VGAP);
+		= new TreeMapPanel(factory, null, true, HGAP, VGAP);
 	    panel.add(treeMap, BorderLayout.CENTER);
 	    TreeMapToolBar toolBar
 		= new TreeMapToolBar(treeMap.getActionMap(), HGAP, VGAP);
+	    toolBar.addSeparator();
+	    toolBar.add(metricBox(treeMap, names, metric));
+	    if (factory instanceof DiskUsage)
+		toolBar.add(((DiskUsage)factory).reportButton());
+	    treeMap.setMetric(metric);
 	    panel.add(toolBar, BorderLayout.NORTH);
 	    panel.add(progress, BorderLayout.SOUTH);
+	    if (refresh > 0)
+		treeMap.setRefreshInterval(refresh * 60);
+	    if (frame == null) {
+		paintOffscreen(panel);
+		started();
+		return;
+	    }
 	    frame.getContentPane().add(panel);
 	    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+	    final boolean exit = startup;
 	    EventQueue.invokeLater(new Runnable() {
 		    public void run() {
 			frame.pack();
 			frame.setVisible(true);
+			if (exit)	// after the first paint
+			    EventQueue.invokeLater(new Runnable() {
+				    public void run() {
+					started();
+				    }
+				});
 		    }
 		});
 	}
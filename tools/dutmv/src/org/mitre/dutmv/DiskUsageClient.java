@@ -0,0 +1,373 @@
+package org.mitre.dutmv;
+
+import java.awt.Color;
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import javax.swing.*;
+import org.mitre.treemap.*;
+
+/**
+ * A tree map factory for the tree served by a {@link
+ * DiskUsageServer}.  The nodes of the tree are fetched from the
+ * server as they are needed: a node knows its weights and the number
+ * and total weight of its children, and asks for the children
+ * themselves only when they are first visited.  Since a layout visits
+ * only the nodes large enough to be seen, only the levels displayed
+ * are fetched, however large the tree the server holds.  Each tree
+ * has a connection of its own, which is closed once no node of the
+ * tree is reachable, so a tree stays whole while it is displayed,
+ * even after a refresh has fetched the tree replacing it.
+ * <p>
+ * Children may be fetched by any thread that visits a node,
+ * including the event dispatch thread, so a failed fetch does not
+ * throw.  The error is shown in the status line, the connection is
+ * closed, and the children are shown as unavailable, each with an
+ * equal share of their parent's weight, and are never fetched again.
+ * Refreshing attaches again.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+class DiskUsageClient
+    implements TreeMapRefreshFactory
+{
+    private final static Cleaner cleaner = Cleaner.create();
+    private final static String UNAVAILABLE = "(unavailable)";
+
+    private final JFrame frame;
+    private JFileChooser chooser; // created when first needed
+    private volatile File socket; // socket last attached to
+
+    /**
+     * Create a factory for trees served on sockets.
+     * @param socket socket initially attached to by refreshTree
+     * @param frame parent of the file dialog
+     */
+    DiskUsageClient(File socket, JFrame frame) {
+	this.socket = socket;
+	this.frame = frame;
+    }
+
+    /**
+     * Create a tree that shows the tree served on a socket selected
+     * with a dialog.
+     */
+    public TreeMapNode createTree() {
+	if (chooser == null) {
+	    chooser = new JFileChooser();
+	    chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+	}
+	chooser.setSelectedFile(socket);
+	if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+	    return null;
+	socket = chooser.getSelectedFile();
+	return refreshTree();
+    }
+
+    /**
+     * Create a tree that shows the latest scan of the server on the
+     * socket last selected.
+     */
+    public TreeMapNode refreshTree() {
+	File file = socket;
+	try {
+	    return createRemoteTree(file);
+	}
+	catch (IOException ioe) {
+	    throw new RuntimeException(file + ": " + ioe.getMessage(), ioe);
+	}
+    }
+
+    /**
+     * Attach to a server and take the root of its latest scan.
+     */
+    static TreeMapNode createRemoteTree(File socket) throws IOException {
+	Connection c = new Connection(socket);
+	try {
+	    return c.root();
+	}
+	catch (IOException ioe) {
+	    c.close();
+	    throw ioe;
+	}
+    }
+
+    /**
+     * A connection to a server.  Requests are made one at a time.
+     * After a request fails, the failure is reported, the connection
+     * is closed, and later requests fail at once.
+     */
+    private static final class Connection
+    {
+	private final SocketChannel channel;
+	private final Cleaner.Cleanable cleanable; // closes the channel
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private final int metrics; // number of weights of a node
+	private final File socket;
+	private boolean failed;
+
+	Connection(File socket) throws IOException {
+	    this.socket = socket;
+	    channel = SocketChannel.open(
+		UnixDomainSocketAddress.of(socket.toPath()));
+	    try {
+		in = new DataInputStream(new BufferedInputStream(
+		    Channels.newInputStream(channel)));
+		out = new DataOutputStream(new BufferedOutputStream(
+		    Channels.newOutputStream(channel)));
+		out.writeInt(DiskUsageServer.MAGIC);
+		out.writeByte(DiskUsageServer.VERSION);
+		out.flush();
+		if (in.readInt() != DiskUsageServer.MAGIC
+		    || in.readUnsignedByte() != DiskUsageServer.VERSION)
+		    throw new IOException("Not a server of this version");
+		metrics = DiskUsageServer.readVarInt(in);
+		for (int i = 0; i < metrics; i++)
+		    in.readUTF();	// the names
+	    }
+	    catch (IOException ioe) {
+		channel.close();
+		throw ioe;
+	    }
+	    cleanable = cleaner.register(this, new Closer(channel));
+	}
+
+	synchronized RemoteNode root() throws IOException {
+	    out.writeByte(DiskUsageServer.ROOT);
+	    out.flush();
+	    answer();
+	    in.readLong();	// time of the scan
+	    return readNode(null, 0);
+	}
+
+	/**
+	 * Fetch the children of a node.
+	 * @return the children, or null if they cannot be fetched
+	 */
+	synchronized RemoteNode[] children(RemoteNode node) {
+	    if (failed)
+		return null;
+	    try {
+		return fetch(node);
+	    }
+	    catch (IOException ioe) {
+		failed = true;
+		close();
+		TreeMapProgress.report(socket + ": " + ioe.getMessage());
+		return null;
+	    }
+	}
+
+	private RemoteNode[] fetch(RemoteNode node) throws IOException {
+	    int depth = 0;
+	    for (RemoteNode n = node; n.parent != null; n = n.parent)
+		depth++;
+	    int[] path = new int[depth];
+	    for (RemoteNode n = node; n.parent != null; n = n.parent)
+		path[--depth] = n.index;
+	    out.writeByte(DiskUsageServer.CHILDREN);
+	    DiskUsageServer.writeVarInt(out, path.length);
+	    for (int i = 0; i < path.length; i++)
+		DiskUsageServer.writeVarInt(out, path[i]);
+	    out.flush();
+	    answer();
+	    int n = DiskUsageServer.readVarInt(in);
+	    if (n != node.count)
+		throw new IOException("Expected " + node.count
+				      + " children but got " + n);
+	    RemoteNode[] kids = new RemoteNode[n];
+	    for (int i = 0; i < n; i++)
+		kids[i] = readNode(node, i);
+	    return kids;
+	}
+
+	private void answer() throws IOException {
+	    int status = in.readUnsignedByte();
+	    if (status == DiskUsageServer.ERROR)
+		throw new IOException(in.readUTF());
+	    if (status != DiskUsageServer.OK)
+		throw new IOException("Bad answer: " + status);
+	}
+
+	private RemoteNode readNode(RemoteNode parent, int index)
+	    throws IOException
+	{
+	    String label = in.readUTF();
+	    Color color = null;
+	    if (in.readUnsignedByte() == DiskUsageServer.RGB)
+		color = new Color(in.readInt(), true);
+	    float[] weights = new float[metrics];
+	    for (int i = 0; i < metrics; i++)
+		weights[i] = in.readFloat();
+	    int count = DiskUsageServer.readVarInt(in);
+	    double total = count > 0 ? in.readDouble() : 0.0;
+	    return new RemoteNode(this, parent, index, label, color,
+				  weights, count, total);
+	}
+
+	void close() {
+	    cleanable.clean();
+	}
+    }
+
+    /**
+     * Closes the channel of a connection.  It must not refer to the
+     * connection, or the connection would never be unreachable.
+     */
+    private static class Closer
+	implements Runnable
+    {
+	private final SocketChannel channel;
+
+	Closer(SocketChannel channel) {
+	    this.channel = channel;
+	}
+
+	public void run() {
+	    try {
+		channel.close();
+	    }
+	    catch (IOException ioe) {
+	    }
+	}
+    }
+
+    /**
+     * A node fetched from a server.  Its children are fetched when
+     * first asked for, and kept.
+     */
+    private static final class RemoteNode
+	implements TreeMapMetricNode, TreeMapBulkNode
+    {
+	private final Connection connection;
+	private final RemoteNode parent;
+	private final int index;	// in the children of the parent
+	private final String label;
+	private final Color color;
+	private final float[] weights;
+	private final int count;	// of the children
+	private final double total;	// of the weights of the children
+	private volatile RemoteNode[] children;
+
+	RemoteNode(Connection connection, RemoteNode parent, int index,
+		   String label, Color color, float[] weights, int count,
+		   double total) {
+	    this.connection = connection;
+	    this.parent = parent;
+	    this.index = index;
+	    this.label = label;
+	    this.color = color;
+	    this.weights = weights;
+	    this.count = count;
+	    this.total = total;
+	}
+
+	public String getLabel() {
+	    return label;
+	}
+
+	public float getWeight() {
+	    return weights.length > 0 ? weights[0] : 0.0f;
+	}
+
+	public float getWeight(int metric) {
+	    if (metric < 0 || metric >= weights.length)
+		return getWeight();
+	    return weights[metric];
+	}
+
+	public Color getColor() {
+	    return color;
+	}
+
+	public int getChildCount() {
+	    return count;
+	}
+
+	public TreeMapNode getChildAt(int i) {
+	    if (i < 0 || i >= count)
+		return null;
+	    return children()[i];
+	}
+
+	public void getChildren(int start, TreeMapNode[] dest,
+				int offset, int length) {
+	    System.arraycopy(children(), start, dest, offset, length);
+	}
+
+	public void getChildWeights(int start, float[] dest,
+				    int offset, int length) {
+	    RemoteNode[] kids = children();
+	    for (int i = 0; i < length; i++)
+		dest[offset + i] = kids[start + i].getWeight();
+	}
+
+	public double getChildWeightTotal() {
+	    return total;
+	}
+
+	public TreeMapNode getParent() {
+	    return parent;
+	}
+
+	/**
+	 * Do nothing runner.
+	 */
+	public void run() {
+	}
+
+	/**
+	 * Make leaves standing for children that could not be fetched.
+	 */
+	private RemoteNode[] unavailable() {
+	    RemoteNode[] kids = new RemoteNode[count];
+	    float[] share = new float[weights.length];
+	    for (int i = 0; i < share.length; i++)
+		share[i] = weights[i] / count;
+	    for (int i = 0; i < count; i++)
+		kids[i] = new RemoteNode(connection, this, i, UNAVAILABLE,
+					 null, share, 0, 0.0);
+	    return kids;
+	}
+
+	private RemoteNode[] children() {
+	    RemoteNode[] kids = children;
+	    if (kids == null) {
+		synchronized (this) {
+		    kids = children;
+		    if (kids == null) {
+			kids = connection.children(this);
+			if (kids == null) // kept, so never fetched again
+			    kids = unavailable();
+			children = kids;
+		    }
+		}
+	    }
+	    return kids;
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
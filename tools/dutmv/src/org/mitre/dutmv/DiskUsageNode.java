@@ -1,23 +1,47 @@
 package org.mitre.dutmv;
 
 import java.awt.Color;
+import java.io.*;
+import java.lang.ref.SoftReference;
+import org.mitre.treemap.TreeMapBulkNode;
+import org.mitre.treemap.TreeMapMetricNode;
 import org.mitre.treemap.TreeMapNode;
 
 /**
  * An obvious implementation of a tree map node for the disk usage
- * application.
+ * application.  A node holds a weight for each of the metrics
+ * defined by DiskUsage, and its default weight is the first.
+ * <p>
+ * The children of a node may be kept in a snapshot, in which case
+ * the node holds them in memory only through a soft reference.  The
+ * node keeps its own weights and the number and total weight of its
+ * children, so a tree can be laid out as far as it is seen while the
+ * children of unseen subtrees are dropped when memory runs short.
+ * Dropped children are read from the snapshot when next asked for.
+ * A child refers to the array holding it and its siblings, so the
+ * children of a node are never dropped while any of them is held,
+ * and a node is the same object for as long as anyone holds it.
  *
  * @version October 2001
  * @author John D. Ramsdell
  */
 class DiskUsageNode
-    implements TreeMapNode
+    implements TreeMapBulkNode, TreeMapMetricNode
 {
+    private final static float[] NO_WEIGHTS = new float[0];
+
     private final String s;
     private float w = 0.0f;
+    private float[] weights = NO_WEIGHTS; // weights by metric
     private Color color;
-    private DiskUsageNode[] children;
+    private DiskUsageNode[] children; // unless kept in a snapshot
+    private double total;	// sum of the weights of the children
     private DiskUsageNode parent;
+    private DiskUsageSnapshot snapshot; // holding the children, or null
+    private long position;	// of the children in the snapshot
+    private int count;		// children in the snapshot
+    private volatile SoftReference<DiskUsageNode[]> cached;
+    private DiskUsageNode[] siblings; // pins the children of the parent
 
     DiskUsageNode(String s) {
 	this.s = s;
@@ -31,8 +55,20 @@ class DiskUsageNode
 	return w;
     }
 
-    void setWeight(long weight) {
-	w = (float)weight;
+    public float getWeight(int metric) {
+	if (metric < 0 || metric >= weights.length)
+	    return w;
+	return weights[metric];
+    }
+
+    /**
+     * Set the weight under each metric.
+     */
+    void setWeights(double[] metrics) {
+	weights = new float[metrics.length];
+	for (int i = 0; i < metrics.length; i++)
+	    weights[i] = (float)metrics[i];
+	w = weights.length > 0 ? weights[0] : 0.0f;
     }
 
     void setColor(Color color) {
@@ -44,23 +80,63 @@ class DiskUsageNode
     }
 
     public int getChildCount() {
-	if (children == null)
+	if (snapshot != null)
+	    return count;
+	else if (children == null)
 	    return 0;
 	else
 	    return children.length;
     }
 
     public TreeMapNode getChildAt(int i) {
-	if (children == null)
-	    return null;
-	try {
-	    return children[i];
-	}
-	catch (IndexOutOfBoundsException ioobe) {
+	DiskUsageNode[] kids = children();
+	if (kids == null || i < 0 || i >= kids.length)
 	    return null;
+	return kids[i];
+    }
+
+    public void getChildren(int start, TreeMapNode[] dest,
+			    int offset, int length) {
+	System.arraycopy(children(), start, dest, offset, length);
+    }
+
+    public void getChildWeights(int start, float[] dest,
+				int offset, int length) {
+	DiskUsageNode[] kids = children();
+	for (int i = 0; i < length; i++)
+	    dest[offset + i] = kids[start + i].w;
+    }
+
+    /**
+     * Get the children, reading them from the snapshot if they have
+     * been dropped.
+     */
+    private DiskUsageNode[] children() {
+	if (snapshot == null)
+	    return children;
+	DiskUsageNode[] kids = cached.get();
+	if (kids != null)
+	    return kids;
+	synchronized (this) {
+	    kids = cached.get();
+	    if (kids == null) {
+		try {
+		    kids = snapshot.read(position, this);
+		}
+		catch (IOException ioe) {
+		    throw new UncheckedIOException(ioe);
+		}
+		pin(kids);
+		cached = new SoftReference<DiskUsageNode[]>(kids);
+	    }
+	    return kids;
 	}
     }
 
+    public double getChildWeightTotal() {
+	return total;
+    }
+
     public TreeMapNode getParent() {
 	return parent;
     }
@@ -69,8 +145,92 @@ class DiskUsageNode
 	this.parent = parent;
     }
 
+    /**
+     * Set the children, whose weights must already be set.
+     */
     void setChildren(DiskUsageNode[] children) {
 	this.children = children;
+	total = 0.0;
+	if (children != null)
+	    for (int i = 0; i < children.length; i++)
+		total += children[i].w;
+    }
+
+    /**
+     * Set the children, keeping them in a snapshot, and holding them
+     * in memory only as long as memory allows.
+     */
+    void setChildren(DiskUsageNode[] children, DiskUsageSnapshot snapshot)
+	throws IOException
+    {
+	setChildren(children);
+	if (children != null && children.length > 0)
+	    saveChildren(snapshot);
+    }
+
+    /**
+     * Move children held only in memory into a snapshot.
+     */
+    void saveChildren(DiskUsageSnapshot snapshot) throws IOException {
+	if (this.snapshot != null || children == null
+	    || children.length == 0)
+	    return;
+	position = snapshot.write(children);
+	count = children.length;
+	pin(children);
+	cached = new SoftReference<DiskUsageNode[]>(children);
+	this.snapshot = snapshot;
+	children = null;
+    }
+
+    /**
+     * Make each child hold the array of its siblings, so the soft
+     * reference to the array is not cleared while a child is held.
+     */
+    private static void pin(DiskUsageNode[] kids) {
+	for (int i = 0; i < kids.length; i++)
+	    kids[i].siblings = kids;
+    }
+
+    /**
+     * Write this node, but not its children, into a snapshot record.
+     * The children must already be in the snapshot.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+	out.writeUTF(s);
+	DiskUsageSnapshot.writeColor(out, color);
+	out.writeByte(weights.length);
+	for (int i = 0; i < weights.length; i++)
+	    out.writeFloat(weights[i]);
+	out.writeInt(count);
+	if (count > 0) {
+	    out.writeLong(position);
+	    out.writeDouble(total);
+	}
+    }
+
+    /**
+     * Read a node written by writeTo.
+     */
+    static DiskUsageNode readFrom(DataInputStream in,
+				  DiskUsageSnapshot snapshot)
+	throws IOException
+    {
+	DiskUsageNode node = new DiskUsageNode(in.readUTF());
+	node.color = snapshot.readColor(in);
+	float[] weights = new float[in.readUnsignedByte()];
+	for (int i = 0; i < weights.length; i++)
+	    weights[i] = in.readFloat();
+	node.weights = weights;
+	node.w = weights.length > 0 ? weights[0] : 0.0f;
+	node.count = in.readInt();
+	if (node.count > 0) {
+	    node.position = in.readLong();
+	    node.total = in.readDouble();
+	    node.snapshot = snapshot;
+	    node.cached = new SoftReference<DiskUsageNode[]>(null);
+	}
+	return node;
     }
 
     /**
@@ -0,0 +1,308 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * A DiskUsageProfile records where the time of a scan goes.  It keeps
+ * histograms of the latencies of listing directories and of getting
+ * the attributes of entries, the time spent in each mounted file
+ * system, and the directories that took longest.  A directory's time
+ * is the time to list it plus the time to get the attributes of its
+ * entries, but not the time spent in its subdirectories, so a slow
+ * directory is found however deep it is.  Recording takes a clock
+ * reading per entry, far less than the system calls it times.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class DiskUsageProfile
+{
+    private final static int BUCKETS = 32; // powers of two microseconds
+    private final static int SLOWEST = 20; // directories reported
+    private final static double NANOS_PER_MILLI = 1.0e6;
+    private final static Object UNKNOWN_DEVICE = new Object();
+
+    private final long[] listHistogram = new long[BUCKETS];
+    private final long[] statHistogram = new long[BUCKETS];
+    private long directories;
+    private long entries;
+    private long listNanos;
+    private long statNanos;
+    private final long start = System.nanoTime();
+    private long elapsed;
+
+    private final HashMap<Object, Mount> mounts
+	= new HashMap<Object, Mount>();
+    private final PriorityQueue<Directory> slowest
+	= new PriorityQueue<Directory>(SLOWEST + 1, BY_NANOS);
+    private Directory current;	// directory whose entries are stat'ed
+
+    private final static Comparator<Directory> BY_NANOS
+	= new Comparator<Directory>() {
+	    public int compare(Directory a, Directory b) {
+		return Long.compare(a.nanos, b.nanos);
+	    }
+	};
+
+    /**
+     * Record the time to get the attributes of an entry.  The time is
+     * charged to the directory holding the entry.
+     */
+    void stat(long nanos) {
+	entries++;
+	statNanos += nanos;
+	statHistogram[bucket(nanos)]++;
+	if (current != null) {
+	    current.nanos += nanos;
+	    current.entries++;
+	}
+    }
+
+    /**
+     * Start the entries of a directory.  Each call must be matched
+     * by a call to endDirectory.
+     */
+    Directory beginDirectory(File dir) {
+	Directory d = new Directory(dir, current, mount(dir));
+	current = d;
+	return d;
+    }
+
+    /**
+     * Record the time to list a directory.
+     */
+    void list(Directory d, long nanos) {
+	directories++;
+	listNanos += nanos;
+	listHistogram[bucket(nanos)]++;
+	d.list = nanos;
+	d.nanos += nanos;
+    }
+
+    /**
+     * Finish the entries of a directory, and charge its time to its
+     * file system.
+     */
+    void endDirectory(Directory d) {
+	current = d.parent;
+	d.parent = null;
+	Mount m = d.mount;
+	m.directories++;
+	m.entries += d.entries;
+	m.nanos += d.nanos;
+	slowest.add(d);
+	if (slowest.size() > SLOWEST)
+	    slowest.poll();
+    }
+
+    /**
+     * Mark the end of the scan.
+     */
+    void finish() {
+	elapsed = System.nanoTime() - start;
+    }
+
+    private static int bucket(long nanos) {
+	long micros = nanos / 1000;
+	return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Find the file system holding a directory.  Only the device
+     * number is read for each directory; the file store is looked up
+     * once per device.
+     */
+    private Mount mount(File dir) {
+	Object dev;
+	Path path = dir.toPath();
+	try {
+	    dev = Files.getAttribute(path, "unix:dev",
+				     LinkOption.NOFOLLOW_LINKS);
+	}
+	catch (IOException ioe) {
+	    dev = UNKNOWN_DEVICE;
+	}
+	catch (RuntimeException ex) { // no unix attributes
+	    dev = UNKNOWN_DEVICE;
+	}
+	Mount m = mounts.get(dev);
+	if (m == null) {
+	    String name;
+	    try {
+		FileStore store = Files.getFileStore(path);
+		name = store + " (" + store.type() + ")";
+	    }
+	    catch (IOException ioe) {
+		name = dir.getPath();
+	    }
+	    m = new Mount(name);
+	    mounts.put(dev, m);
+	}
+	return m;
+    }
+
+    /**
+     * Write the report.
+     */
+    void report(PrintWriter out) {
+	long total = elapsed > 0 ? elapsed : System.nanoTime() - start;
+	out.println(format("Scanned %d entries in %d directories in %.1f ms",
+			   entries, directories, total / NANOS_PER_MILLI));
+	out.println(format("Listing: %.1f ms, getting attributes: %.1f ms",
+			   listNanos / NANOS_PER_MILLI,
+			   statNanos / NANOS_PER_MILLI));
+	out.println();
+	histogram(out, "Directory listing latency", listHistogram);
+	histogram(out, "Attribute latency", statHistogram);
+	out.println("File systems by time:");
+	ArrayList<Mount> ms = new ArrayList<Mount>(mounts.values());
+	Collections.sort(ms, new Comparator<Mount>() {
+		public int compare(Mount a, Mount b) {
+		    return Long.compare(b.nanos, a.nanos);
+		}
+	    });
+	for (Iterator<Mount> i = ms.iterator(); i.hasNext(); ) {
+	    Mount m = i.next();
+	    out.println(format("  %10.1f ms %8d dirs %10d entries  %s",
+			       m.nanos / NANOS_PER_MILLI, m.directories,
+			       m.entries, m.name));
+	}
+	out.println();
+	out.println("Slowest directories:");
+	ArrayList<Directory> ds = new ArrayList<Directory>(slowest);
+	Collections.sort(ds, Collections.reverseOrder(BY_NANOS));
+	for (Iterator<Directory> i = ds.iterator(); i.hasNext(); ) {
+	    Directory d = i.next();
+	    out.println(format("  %10.1f ms (list %.1f ms) %8d entries  %s",
+			       d.nanos / NANOS_PER_MILLI,
+			       d.list / NANOS_PER_MILLI, d.entries,
+			       d.dir.getPath()));
+	}
+	out.flush();
+    }
+
+    /**
+     * Get the report as a string.
+     */
+    public String toString() {
+	StringWriter sw = new StringWriter();
+	report(new PrintWriter(sw));
+	return sw.toString();
+    }
+
+    private static void histogram(PrintWriter out, String title,
+				  long[] counts) {
+	long n = 0;
+	for (int i = 0; i < counts.length; i++)
+	    n += counts[i];
+	out.println(title + ":");
+	if (n == 0) {
+	    out.println("  none");
+	    out.println();
+	    return;
+	}
+	out.println(format("  p50 < %s, p90 < %s, p99 < %s, max < %s",
+			   bound(percentile(counts, n, 0.50)),
+			   bound(percentile(counts, n, 0.90)),
+			   bound(percentile(counts, n, 0.99)),
+			   bound(percentile(counts, n, 1.00))));
+	for (int i = 0; i < counts.length; i++)
+	    if (counts[i] > 0)
+		out.println(format("  < %8s %10d", bound(i), counts[i]));
+	out.println();
+    }
+
+    /**
+     * Find the bucket holding a fraction of the samples.
+     */
+    private static int percentile(long[] counts, long n, double p) {
+	long seen = 0;
+	long rank = Math.max(1, (long)Math.ceil(p * n));
+	for (int i = 0; i < counts.length; i++) {
+	    seen += counts[i];
+	    if (seen >= rank)
+		return i;
+	}
+	return counts.length - 1;
+    }
+
+    /**
+     * The upper bound of a bucket as text.
+     */
+    private static String bound(int i) {
+	if (i == BUCKETS - 1)
+	    return "inf";
+	long micros = 1L << i;
+	if (micros < 1000)
+	    return micros + "us";
+	if (micros < 1000000)
+	    return format("%.1fms", micros / 1.0e3);
+	return format("%.1fs", micros / 1.0e6);
+    }
+
+    private static String format(String fmt, Object... args) {
+	return String.format(Locale.ROOT, fmt, args);
+    }
+
+    /**
+     * The time spent on the entries of one directory.
+     */
+    static final class Directory
+    {
+	final File dir;
+	final Mount mount;
+	Directory parent;	// while its entries are scanned
+	long list;		// nanoseconds to list
+	long nanos;		// to list and get attributes
+	int entries;
+
+	Directory(File dir, Directory parent, Mount mount) {
+	    this.dir = dir;
+	    this.parent = parent;
+	    this.mount = mount;
+	}
+    }
+
+    /**
+     * The time spent in one file system.
+     */
+    private static final class Mount
+    {
+	final String name;
+	long directories;
+	long entries;
+	long nanos;
+
+	Mount(String name) {
+	    this.name = name;
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,302 @@
+package org.mitre.dutmv;
+
+import java.awt.Color;
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import org.mitre.treemap.*;
+
+/**
+ * A DiskUsageServer scans a directory, keeps its tree current by
+ * rescanning it, and serves the tree to viewers over a local socket,
+ * so that any number of viewers share one scan.  A viewer attaches
+ * with a {@link DiskUsageClient}, which asks only for the children
+ * of the nodes it shows.
+ * <p>
+ * The protocol is binary.  After the client sends the magic number
+ * and the version, and the server answers with the same, followed by
+ * the names of the metrics, the client makes requests, each answered
+ * in turn.  A request is an operation byte.  ROOT takes the tree of
+ * the latest scan for the connection, and is answered with the time
+ * of the scan and the root.  CHILDREN is followed by the path of a
+ * node from the root, as a count and that many child indexes, and is
+ * answered with the count and the children of the node.  Answers
+ * start with OK, or with ERROR and a message.  A node is its label,
+ * its color, its weight under each metric, and its number of
+ * children, followed by the total of their weights when it has any.
+ * Counts and indexes are variable length integers, seven bits to a
+ * byte.  A connection keeps the tree it took until it takes another,
+ * so a viewer sees one scan however often the directory is rescanned.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class DiskUsageServer
+{
+    final static int MAGIC = 0x4455544d; // "DUTM"
+    final static int VERSION = 1;
+
+    // Operations
+    final static int ROOT = 1;
+    final static int CHILDREN = 2;
+
+    // Answers
+    final static int OK = 0;
+    final static int ERROR = 1;
+
+    // Color flags
+    final static int NO_COLOR = 0;
+    final static int RGB = 1;
+
+    private final File directory;
+    private final int archives;
+    private final boolean report;
+    private final File socket;
+    private volatile TreeMapNode tree; // of the latest scan
+    private volatile long scanned;     // time of the latest scan
+
+    /**
+     * Create a server.
+     * @param directory directory scanned
+     * @param archives how archives found while scanning are treated
+     * @param report print the profile of each scan
+     * @param socket pathname of the socket
+     */
+    DiskUsageServer(File directory, int archives, boolean report,
+		    File socket) {
+	this.directory = directory;
+	this.archives = archives;
+	this.report = report;
+	this.socket = socket;
+    }
+
+    /**
+     * Scan the directory, and serve its tree until the program is
+     * stopped, rescanning every given number of minutes.  The socket
+     * is bound before the first scan, so a socket already being
+     * served is found at once rather than after a long scan, and
+     * viewers attaching during the scan wait for it to finish.
+     */
+    void serve(final int minutes) throws IOException, InterruptedException {
+	ServerSocketChannel server = bind();
+	rescan();
+	System.out.println("Serving " + directory + " on " + socket);
+	if (minutes > 0) {
+	    Thread rescanner = new Thread("dutmv-rescan") {
+		    public void run() {
+			for (;;) {
+			    try {
+				Thread.sleep(minutes * 60000L);
+				rescan();
+			    }
+			    catch (InterruptedException ie) {
+				return;
+			    }
+			    catch (Exception ex) { // keep the last tree
+				ex.printStackTrace();
+			    }
+			}
+		    }
+		};
+	    rescanner.setDaemon(true);
+	    rescanner.start();
+	}
+	for (;;) {
+	    final SocketChannel channel = server.accept();
+	    Thread connection = new Thread("dutmv-viewer") {
+		    public void run() {
+			try {
+			    converse(channel);
+			}
+			catch (EOFException eof) { // viewer closed
+			}
+			catch (IOException ioe) {
+			    System.err.println(ioe);
+			}
+			finally {
+			    try {
+				channel.close();
+			    }
+			    catch (IOException ioe) {
+			    }
+			}
+		    }
+		};
+	    connection.setDaemon(true);
+	    connection.start();
+	}
+    }
+
+    /**
+     * Scan the directory and publish its tree.
+     */
+    private void rescan() throws IOException, InterruptedException {
+	DiskUsageProfile profile = new DiskUsageProfile();
+	TreeMapNode t = DiskUsage.scan(directory, archives, profile,
+				       new DiskUsageSnapshot());
+	if (report)
+	    profile.report(new PrintWriter(System.err));
+	scanned = System.currentTimeMillis();
+	tree = t;
+    }
+
+    /**
+     * Bind the socket, replacing a socket left by a server that is
+     * no longer running.
+     */
+    private ServerSocketChannel bind() throws IOException {
+	UnixDomainSocketAddress address
+	    = UnixDomainSocketAddress.of(socket.toPath());
+	if (socket.exists()) {
+	    if (listening(address))
+		throw new IOException(socket + ": already being served");
+	    Files.delete(socket.toPath());
+	}
+	ServerSocketChannel server
+	    = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+	server.bind(address);
+	socket.deleteOnExit();
+	return server;
+    }
+
+    private static boolean listening(UnixDomainSocketAddress address) {
+	try {
+	    SocketChannel.open(address).close();
+	    return true;
+	}
+	catch (IOException ioe) {
+	    return false;
+	}
+    }
+
+    /**
+     * Answer the requests of one viewer.
+     */
+    private void converse(SocketChannel channel) throws IOException {
+	DataInputStream in = new DataInputStream(new BufferedInputStream(
+	    Channels.newInputStream(channel)));
+	DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+	    Channels.newOutputStream(channel)));
+	if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION)
+	    throw new IOException("Not a viewer of this version");
+	out.writeInt(MAGIC);
+	out.writeByte(VERSION);
+	writeVarInt(out, DiskUsage.METRIC_NAMES.length);
+	for (int i = 0; i < DiskUsage.METRIC_NAMES.length; i++)
+	    out.writeUTF(DiskUsage.METRIC_NAMES[i]);
+	out.flush();
+	TreeMapNode root = null; // the tree taken by the viewer
+	for (;;) {
+	    int op = in.readUnsignedByte();
+	    if (op == ROOT) {
+		root = tree;
+		out.writeByte(OK);
+		out.writeLong(scanned);
+		writeNode(out, root);
+	    }
+	    else if (op == CHILDREN) {
+		TreeMapNode node = root;
+		int depth = readVarInt(in);
+		for (int i = 0; i < depth; i++) {
+		    int index = readVarInt(in);
+		    if (node != null)
+			node = node.getChildAt(index);
+		}
+		if (node == null) {
+		    out.writeByte(ERROR);
+		    out.writeUTF("No such node");
+		}
+		else {
+		    int n = node.getChildCount();
+		    out.writeByte(OK);
+		    writeVarInt(out, n);
+		    for (int i = 0; i < n; i++)
+			writeNode(out, node.getChildAt(i));
+		}
+	    }
+	    else
+		throw new IOException("Bad request: " + op);
+	    out.flush();
+	}
+    }
+
+    /**
+     * Write a node, but not its children.
+     */
+    private static void writeNode(DataOutputStream out, TreeMapNode node)
+	throws IOException
+    {
+	out.writeUTF(node.getLabel());
+	Color color = node.getColor();
+	if (color == null)
+	    out.writeByte(NO_COLOR);
+	else {
+	    out.writeByte(RGB);
+	    out.writeInt(color.getRGB());
+	}
+	int metrics = DiskUsage.METRIC_NAMES.length;
+	for (int i = 0; i < metrics; i++)
+	    out.writeFloat(node instanceof TreeMapMetricNode
+			   ? ((TreeMapMetricNode)node).getWeight(i)
+			   : node.getWeight());
+	int n = node.getChildCount();
+	writeVarInt(out, n);
+	if (n > 0)
+	    out.writeDouble(total(node));
+    }
+
+    /**
+     * Get the total of the weights of the children of a node.
+     */
+    private static double total(TreeMapNode node) {
+	if (node instanceof TreeMapBulkNode)
+	    return ((TreeMapBulkNode)node).getChildWeightTotal();
+	double total = 0.0;
+	for (int i = 0; i < node.getChildCount(); i++)
+	    total += node.getChildAt(i).getWeight();
+	return total;
+    }
+
+    static void writeVarInt(DataOutput out, int n) throws IOException {
+	while ((n & ~0x7f) != 0) {
+	    out.writeByte((n & 0x7f) | 0x80);
+	    n >>>= 7;
+	}
+	out.writeByte(n);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+	int n = 0;
+	for (int shift = 0; shift < 32; shift += 7) {
+	    int b = in.readUnsignedByte();
+	    n |= (b & 0x7f) << shift;
+	    if ((b & 0x80) == 0)
+		return n;
+	}
+	throw new IOException("Bad integer");
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
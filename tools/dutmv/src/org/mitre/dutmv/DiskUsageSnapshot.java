@@ -0,0 +1,191 @@
+package org.mitre.dutmv;
+
+import java.awt.Color;
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * A DiskUsageSnapshot holds the children of the directories of a
+ * scan in a temporary file, so that the children of directories
+ * nobody is looking at can be dropped from memory and read again
+ * when needed.  The children of a directory are written as one
+ * record once the directory has been scanned.  Since directories are
+ * finished children first, the record of a directory's children can
+ * hold the position of each child's own record.  Where the system
+ * allows it, the file is removed from its directory as soon as it is
+ * opened, so it goes away with the program however the program
+ * stops.  Otherwise, it is deleted when the snapshot is no longer
+ * reachable, which is when no node of its tree is.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class DiskUsageSnapshot
+{
+    private final static Cleaner cleaner = Cleaner.create();
+    private final static int NO_COLOR = 0; // color flags
+    private final static int RGB = 1;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final DataOutputStream out; // appends records
+    private long length;	// of the records written
+    private boolean flushed = true;
+    private final HashMap<Integer, Color> colors
+	= new HashMap<Integer, Color>();
+
+    /**
+     * Create an empty snapshot in a temporary file.
+     */
+    DiskUsageSnapshot() throws IOException {
+	File f = File.createTempFile("dutmv", ".snap");
+	try {
+	    file = new RandomAccessFile(f, "rw");
+	}
+	catch (IOException ioe) {
+	    f.delete();
+	    throw ioe;
+	}
+	f.delete();		// fails while open on some systems
+	channel = file.getChannel();
+	out = new DataOutputStream(new BufferedOutputStream(
+	    Channels.newOutputStream(channel), 65536));
+	cleaner.register(this, new Remover(f, file));
+    }
+
+    /**
+     * Closes the file of a snapshot, and deletes it if it could not
+     * be deleted when it was opened.  It must not refer
+     * to the snapshot, or the snapshot would never be unreachable.
+     */
+    private static class Remover
+	implements Runnable
+    {
+	private final File f;
+	private final RandomAccessFile file;
+
+	Remover(File f, RandomAccessFile file) {
+	    this.f = f;
+	    this.file = file;
+	}
+
+	public void run() {
+	    try {
+		file.close();
+	    }
+	    catch (IOException ioe) {
+	    }
+	    f.delete();
+	}
+    }
+
+    /**
+     * Write a record holding some children.  Children whose own
+     * children are held only in memory, such as the entries of an
+     * archive, are written first.
+     * @return the position of the record
+     */
+    synchronized long write(DiskUsageNode[] children) throws IOException {
+	for (int i = 0; i < children.length; i++)
+	    children[i].saveChildren(this);
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	DataOutputStream record = new DataOutputStream(bytes);
+	record.writeInt(children.length);
+	for (int i = 0; i < children.length; i++)
+	    children[i].writeTo(record);
+	record.flush();
+	long position = length;
+	out.writeInt(bytes.size());
+	bytes.writeTo(out);
+	length += 4 + bytes.size();
+	flushed = false;
+	return position;
+    }
+
+    /**
+     * Read the children in a record.
+     * @param position position of the record
+     * @param parent parent of the children
+     */
+    synchronized DiskUsageNode[] read(long position, DiskUsageNode parent)
+	throws IOException
+    {
+	if (!flushed) {
+	    out.flush();
+	    flushed = true;
+	}
+	ByteBuffer size = ByteBuffer.allocate(4);
+	readFully(size, position);
+	ByteBuffer buf = ByteBuffer.allocate(size.getInt(0));
+	readFully(buf, position + 4);
+	DataInputStream in = new DataInputStream(
+	    new ByteArrayInputStream(buf.array()));
+	DiskUsageNode[] children = new DiskUsageNode[in.readInt()];
+	for (int i = 0; i < children.length; i++) {
+	    children[i] = DiskUsageNode.readFrom(in, this);
+	    children[i].setParent(parent);
+	}
+	return children;
+    }
+
+    private void readFully(ByteBuffer buf, long position)
+	throws IOException
+    {
+	while (buf.hasRemaining()) {
+	    int n = channel.read(buf, position + buf.position());
+	    if (n < 0)
+		throw new EOFException("Snapshot truncated");
+	}
+    }
+
+    /**
+     * Write a color, which may be null.
+     */
+    static void writeColor(DataOutput out, Color color) throws IOException {
+	if (color == null)
+	    out.writeByte(NO_COLOR);
+	else {
+	    out.writeByte(RGB);
+	    out.writeInt(color.getRGB());
+	}
+    }
+
+    /**
+     * Read a color, sharing one object among nodes of the same color.
+     */
+    Color readColor(DataInput in) throws IOException {
+	if (in.readByte() == NO_COLOR)
+	    return null;
+	Integer rgb = Integer.valueOf(in.readInt());
+	Color color = colors.get(rgb);
+	if (color == null) {
+	    color = new Color(rgb.intValue(), true);
+	    colors.put(rgb, color);
+	}
+	return color;
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,798 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A reader for the objects in a local git repository.  Pack indexes
+ * and packfiles are read through memory mapped channels.  The size
+ * of an object is found from its header, and for a delta from the
+ * first few bytes of the delta, so finding sizes inflates almost
+ * nothing.  Only objects read in full, such as commits and trees, are
+ * inflated, with the bases of deltas kept in a small cache.
+ * <p>
+ * A repository is not safe for use by more than one thread.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class GitRepository
+    implements Closeable
+{
+    // Object types
+    final static int COMMIT = 1;
+    final static int TREE = 2;
+    final static int BLOB = 3;
+    final static int TAG = 4;
+    private final static int OFS_DELTA = 6;
+    private final static int REF_DELTA = 7;
+
+    private final static String[] TYPE_NAMES = {
+	null, "commit", "tree", "blob", "tag"
+    };
+    private final static int MAX_SYMREF_DEPTH = 8;
+    private final static long CACHE_BYTES = 64L << 20;
+
+    private final File gitDir;	// holds HEAD
+    private final File commonDir; // holds objects and shared refs
+    private final File[] objectDirs; // this one and alternates
+    private final Pack[] packs;
+    private final Inflater inflater = new Inflater();
+    private final Cache cache = new Cache();
+
+    /**
+     * Open the repository in a directory, which may be a work tree, a
+     * bare repository, or a git directory.
+     * @throws IOException when it is not a repository
+     */
+    GitRepository(File dir) throws IOException {
+	gitDir = findGitDir(dir);
+	if (gitDir == null)
+	    throw new IOException(dir + ": not a git repository");
+	File common = new File(gitDir, "commondir");
+	if (common.isFile()) {
+	    File c = new File(readLine(common));
+	    commonDir = c.isAbsolute() ? c : new File(gitDir, c.getPath());
+	}
+	else
+	    commonDir = gitDir;
+	ArrayList<File> dirs = new ArrayList<File>();
+	dirs.add(new File(commonDir, "objects"));
+	File alternates = new File(commonDir, "objects/info/alternates");
+	if (alternates.isFile()) {
+	    BufferedReader r = new BufferedReader(new FileReader(alternates));
+	    try {
+		String line;
+		while ((line = r.readLine()) != null)
+		    if (line.length() > 0 && !line.startsWith("#"))
+			dirs.add(new File(line));
+	    }
+	    finally {
+		r.close();
+	    }
+	}
+	objectDirs = dirs.toArray(new File[dirs.size()]);
+	ArrayList<Pack> list = new ArrayList<Pack>();
+	try {
+	    for (int i = 0; i < objectDirs.length; i++) {
+		File[] files = new File(objectDirs[i], "pack").listFiles();
+		if (files == null)
+		    continue;
+		Arrays.sort(files);
+		for (int j = 0; j < files.length; j++) {
+		    String name = files[j].getName();
+		    if (!name.endsWith(".idx"))
+			continue;
+		    File pack = new File(files[j].getParentFile(),
+					 name.substring(0, name.length() - 4)
+					 + ".pack");
+		    if (pack.isFile())
+			list.add(new Pack(list.size(), files[j], pack));
+		}
+	    }
+	}
+	catch (IOException ioe) {
+	    for (int i = 0; i < list.size(); i++)
+		list.get(i).close();
+	    throw ioe;
+	}
+	packs = list.toArray(new Pack[list.size()]);
+    }
+
+    /**
+     * Find the git directory of a repository.
+     * @return the directory or null if there is none
+     */
+    static File findGitDir(File dir) {
+	File dotGit = new File(dir, ".git");
+	if (dotGit.isDirectory())
+	    dir = dotGit;
+	else if (dotGit.isFile()) { // a linked work tree
+	    try {
+		String line = readLine(dotGit);
+		if (!line.startsWith("gitdir: "))
+		    return null;
+		File d = new File(line.substring(8));
+		dir = d.isAbsolute() ? d : new File(dir, d.getPath());
+	    }
+	    catch (IOException ioe) {
+		return null;
+	    }
+	}
+	if (new File(dir, "HEAD").isFile()
+	    && (new File(dir, "objects").isDirectory()
+		|| new File(dir, "commondir").isFile()))
+	    return dir;
+	return null;
+    }
+
+    public void close() {
+	for (int i = 0; i < packs.length; i++)
+	    packs[i].close();
+	inflater.end();
+    }
+
+    // Names
+
+    /**
+     * An object name.
+     */
+    static final class Id
+    {
+	final byte[] bytes;
+	private final int hash;
+
+	Id(byte[] bytes) {
+	    this.bytes = bytes;
+	    hash = (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16
+		| (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+	}
+
+	static Id fromBytes(byte[] b, int offset) {
+	    return new Id(Arrays.copyOfRange(b, offset, offset + 20));
+	}
+
+	/**
+	 * Parse a name written in hex.
+	 * @return the name or null if the text is not one
+	 */
+	static Id fromHex(String s) {
+	    if (s.length() != 40)
+		return null;
+	    byte[] b = new byte[20];
+	    for (int i = 0; i < 20; i++) {
+		int hi = Character.digit(s.charAt(2 * i), 16);
+		int lo = Character.digit(s.charAt(2 * i + 1), 16);
+		if (hi < 0 || lo < 0)
+		    return null;
+		b[i] = (byte)(hi << 4 | lo);
+	    }
+	    return new Id(b);
+	}
+
+	public boolean equals(Object o) {
+	    return o instanceof Id && Arrays.equals(bytes, ((Id)o).bytes);
+	}
+
+	public int hashCode() {
+	    return hash;
+	}
+
+	public String toString() {
+	    StringBuffer sb = new StringBuffer(40);
+	    for (int i = 0; i < bytes.length; i++) {
+		sb.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+		sb.append(Character.forDigit(bytes[i] & 0xf, 16));
+	    }
+	    return sb.toString();
+	}
+    }
+
+    /**
+     * Resolve a revision: an object name in hex, a ref, or a branch,
+     * tag or remote name.
+     * @throws IOException if the revision cannot be resolved
+     */
+    Id resolve(String rev) throws IOException {
+	Id id = Id.fromHex(rev);
+	if (id != null)
+	    return id;
+	String[] candidates = {
+	    rev, "refs/" + rev, "refs/tags/" + rev, "refs/heads/" + rev,
+	    "refs/remotes/" + rev, "refs/remotes/" + rev + "/HEAD"
+	};
+	for (int i = 0; i < candidates.length; i++) {
+	    id = ref(candidates[i], 0);
+	    if (id != null)
+		return id;
+	}
+	throw new IOException(rev + ": unknown revision");
+    }
+
+    private Id ref(String name, int depth) throws IOException {
+	if (depth > MAX_SYMREF_DEPTH)
+	    throw new IOException(name + ": symbolic ref loop");
+	File[] dirs = { gitDir, commonDir };
+	for (int i = 0; i < dirs.length; i++) {
+	    File f = new File(dirs[i], name);
+	    if (!f.isFile())
+		continue;
+	    String line = readLine(f);
+	    if (line.startsWith("ref: "))
+		return ref(line.substring(5).trim(), depth + 1);
+	    Id id = Id.fromHex(line.trim());
+	    if (id != null)
+		return id;
+	}
+	File packed = new File(commonDir, "packed-refs");
+	if (!packed.isFile())
+	    return null;
+	BufferedReader r = new BufferedReader(new FileReader(packed));
+	try {
+	    String line;
+	    while ((line = r.readLine()) != null) {
+		if (line.length() > 41 && line.charAt(40) == ' '
+		    && line.substring(41).equals(name))
+		    return Id.fromHex(line.substring(0, 40));
+	    }
+	}
+	finally {
+	    r.close();
+	}
+	return null;
+    }
+
+    private static String readLine(File f) throws IOException {
+	BufferedReader r = new BufferedReader(new FileReader(f));
+	try {
+	    String line = r.readLine();
+	    return line == null ? "" : line.trim();
+	}
+	finally {
+	    r.close();
+	}
+    }
+
+    // Objects
+
+    /**
+     * Is an object in the repository?
+     */
+    boolean contains(Id id) {
+	for (int i = 0; i < packs.length; i++)
+	    if (packs[i].find(id) >= 0)
+		return true;
+	return loose(id) != null;
+    }
+
+    /**
+     * Read an object in full.
+     * @param id the object's name
+     * @param type receives the object's type in its first element
+     * @return the contents of the object
+     */
+    byte[] read(Id id, int[] type) throws IOException {
+	for (int i = 0; i < packs.length; i++) {
+	    long offset = packs[i].find(id);
+	    if (offset >= 0)
+		return read(packs[i], offset, type);
+	}
+	File f = loose(id);
+	if (f == null)
+	    throw new IOException(id + ": missing object");
+	byte[] data = inflateAll(readFile(f));
+	int nul = header(data, type);
+	return Arrays.copyOfRange(data, nul + 1, data.length);
+    }
+
+    /**
+     * Find the sizes of an object without reading it.
+     * @param id the object's name
+     * @param sizes receives the bytes the object takes in the
+     * repository and the length of its contents
+     */
+    void sizes(Id id, long[] sizes) throws IOException {
+	for (int i = 0; i < packs.length; i++) {
+	    long offset = packs[i].find(id);
+	    if (offset >= 0) {
+		packedSizes(packs[i], offset, sizes);
+		return;
+	    }
+	}
+	File f = loose(id);
+	if (f == null)
+	    throw new IOException(id + ": missing object");
+	// Inflate just enough of a loose object to read its header.
+	byte[] compressed = readFile(f);
+	byte[] head = new byte[64];
+	int n;
+	try {
+	    inflater.reset();
+	    inflater.setInput(compressed);
+	    n = inflater.inflate(head);
+	}
+	catch (DataFormatException dfe) {
+	    throw new IOException(id + ": corrupt object");
+	}
+	int[] type = new int[1];
+	int nul = header(Arrays.copyOf(head, n), type);
+	sizes[0] = compressed.length;
+	String text = new String(head, 0, nul, StandardCharsets.US_ASCII);
+	sizes[1] = Long.parseLong(text.substring(text.indexOf(' ') + 1));
+    }
+
+    private File loose(Id id) {
+	String hex = id.toString();
+	for (int i = 0; i < objectDirs.length; i++) {
+	    File f = new File(objectDirs[i],
+			      hex.substring(0, 2) + "/" + hex.substring(2));
+	    if (f.isFile())
+		return f;
+	}
+	return null;
+    }
+
+    /**
+     * Parse the header of a loose object.
+     * @return the index of the NUL that ends the header
+     */
+    private static int header(byte[] data, int[] type) throws IOException {
+	int space = -1;
+	int nul = -1;
+	for (int i = 0; i < data.length && nul < 0; i++)
+	    if (data[i] == ' ' && space < 0)
+		space = i;
+	    else if (data[i] == 0)
+		nul = i;
+	if (space < 0 || nul < 0)
+	    throw new IOException("bad loose object header");
+	String name = new String(data, 0, space, StandardCharsets.US_ASCII);
+	type[0] = 0;
+	for (int t = COMMIT; t <= TAG; t++)
+	    if (TYPE_NAMES[t].equals(name))
+		type[0] = t;
+	if (type[0] == 0)
+	    throw new IOException("bad loose object type");
+	return nul;
+    }
+
+    private static byte[] readFile(File f) throws IOException {
+	long n = f.length();
+	if (n > Integer.MAX_VALUE)
+	    throw new IOException(f + ": too large");
+	byte[] b = new byte[(int)n];
+	DataInputStream in = new DataInputStream(new FileInputStream(f));
+	try {
+	    in.readFully(b);
+	}
+	finally {
+	    in.close();
+	}
+	return b;
+    }
+
+    private byte[] inflateAll(byte[] compressed) throws IOException {
+	inflater.reset();
+	inflater.setInput(compressed);
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	byte[] buf = new byte[8192];
+	try {
+	    while (!inflater.finished()) {
+		int n = inflater.inflate(buf);
+		if (n == 0 && (inflater.needsInput()
+			       || inflater.needsDictionary()))
+		    throw new IOException("truncated object");
+		out.write(buf, 0, n);
+	    }
+	}
+	catch (DataFormatException dfe) {
+	    throw new IOException("corrupt object");
+	}
+	return out.toByteArray();
+    }
+
+    // Packed objects
+
+    /**
+     * The header of a packed object.
+     */
+    private static class Header
+    {
+	int type;
+	long size;		// inflated size of the data
+	long base;		// offset of the base of an offset delta
+	Id baseId;		// name of the base of a ref delta
+	int data;		// position of the deflated data
+    }
+
+    private static void parseHeader(ByteBuffer b, long offset, Header h)
+	throws IOException
+    {
+	int p = 0;
+	int c = b.get(p++) & 0xff;
+	h.type = (c >> 4) & 7;
+	long size = c & 0x0f;
+	int shift = 4;
+	while ((c & 0x80) != 0) {
+	    c = b.get(p++) & 0xff;
+	    size |= (long)(c & 0x7f) << shift;
+	    shift += 7;
+	}
+	h.size = size;
+	if (h.type == OFS_DELTA) {
+	    c = b.get(p++) & 0xff;
+	    long off = c & 0x7f;
+	    while ((c & 0x80) != 0) {
+		c = b.get(p++) & 0xff;
+		off = ((off + 1) << 7) | (c & 0x7f);
+	    }
+	    h.base = offset - off;
+	    if (h.base < 0)
+		throw new IOException("bad delta base offset");
+	}
+	else if (h.type == REF_DELTA) {
+	    byte[] id = new byte[20];
+	    for (int i = 0; i < 20; i++)
+		id[i] = b.get(p++);
+	    h.baseId = new Id(id);
+	}
+	else if (h.type < COMMIT || h.type > TAG)
+	    throw new IOException("bad packed object type");
+	h.data = p;
+    }
+
+    private void packedSizes(Pack pack, long offset, long[] sizes)
+	throws IOException
+    {
+	long end = pack.end(offset);
+	ByteBuffer b = pack.slice(offset, end - offset);
+	Header h = new Header();
+	parseHeader(b, offset, h);
+	sizes[0] = end - offset;
+	if (h.type != OFS_DELTA && h.type != REF_DELTA) {
+	    sizes[1] = h.size;
+	    return;
+	}
+	// The result size follows the base size at the start of a delta.
+	byte[] head = new byte[20];
+	int n = inflate(b, h.data, head, head.length);
+	int[] p = { 0 };
+	varint(head, n, p);
+	sizes[1] = varint(head, n, p);
+    }
+
+    private byte[] read(Pack pack, long offset, int[] type)
+	throws IOException
+    {
+	long key = (long)pack.number << 48 | offset;
+	Cache.Item item = cache.get(key);
+	if (item != null) {
+	    type[0] = item.type;
+	    return item.data;
+	}
+	ByteBuffer b = pack.slice(offset, pack.end(offset) - offset);
+	Header h = new Header();
+	parseHeader(b, offset, h);
+	if (h.size > Integer.MAX_VALUE)
+	    throw new IOException("object too large");
+	byte[] data = new byte[(int)h.size];
+	int n = inflate(b, h.data, data, data.length);
+	if (n != data.length)
+	    throw new IOException("truncated object");
+	if (h.type == OFS_DELTA)
+	    data = apply(read(pack, h.base, type), data);
+	else if (h.type == REF_DELTA)
+	    data = apply(read(h.baseId, type), data);
+	else
+	    type[0] = h.type;
+	if (type[0] != BLOB)
+	    cache.put(key, type[0], data);
+	return data;
+    }
+
+    /**
+     * Inflate deflated data at a position in a buffer.
+     * @return the number of bytes inflated, at most length
+     */
+    private int inflate(ByteBuffer b, int position, byte[] out, int length)
+	throws IOException
+    {
+	ByteBuffer in = b.duplicate();
+	in.position(position);
+	inflater.reset();
+	inflater.setInput(in);
+	int n = 0;
+	try {
+	    while (n < length) {
+		int k = inflater.inflate(out, n, length - n);
+		if (k == 0 && (inflater.finished() || inflater.needsInput()
+			       || inflater.needsDictionary()))
+		    break;
+		n += k;
+	    }
+	}
+	catch (DataFormatException dfe) {
+	    throw new IOException("corrupt packed object");
+	}
+	return n;
+    }
+
+    private static long varint(byte[] b, int n, int[] p)
+	throws IOException
+    {
+	long v = 0;
+	int shift = 0;
+	for (;;) {
+	    if (p[0] >= n)
+		throw new IOException("truncated delta");
+	    int c = b[p[0]++] & 0xff;
+	    v |= (long)(c & 0x7f) << shift;
+	    shift += 7;
+	    if ((c & 0x80) == 0)
+		return v;
+	}
+    }
+
+    /**
+     * Apply a delta to its base.
+     */
+    private static byte[] apply(byte[] base, byte[] delta)
+	throws IOException
+    {
+	int[] p = { 0 };
+	long baseSize = varint(delta, delta.length, p);
+	long size = varint(delta, delta.length, p);
+	if (baseSize != base.length || size > Integer.MAX_VALUE)
+	    throw new IOException("bad delta");
+	byte[] out = new byte[(int)size];
+	int q = 0;
+	int i = p[0];
+	try {
+	    while (i < delta.length) {
+		int op = delta[i++] & 0xff;
+		if ((op & 0x80) != 0) { // copy from the base
+		    int off = 0;
+		    int len = 0;
+		    for (int bit = 0; bit < 4; bit++)
+			if ((op & (1 << bit)) != 0)
+			    off |= (delta[i++] & 0xff) << (8 * bit);
+		    for (int bit = 0; bit < 3; bit++)
+			if ((op & (0x10 << bit)) != 0)
+			    len |= (delta[i++] & 0xff) << (8 * bit);
+		    if (len == 0)
+			len = 0x10000;
+		    System.arraycopy(base, off, out, q, len);
+		    q += len;
+		}
+		else if (op != 0) { // insert from the delta
+		    System.arraycopy(delta, i, out, q, op);
+		    i += op;
+		    q += op;
+		}
+		else
+		    throw new IOException("bad delta opcode");
+	    }
+	}
+	catch (IndexOutOfBoundsException ioobe) {
+	    throw new IOException("bad delta");
+	}
+	if (q != out.length)
+	    throw new IOException("bad delta length");
+	return out;
+    }
+
+    /**
+     * A cache of recently read objects, bounded by their total size.
+     */
+    private static class Cache
+	extends LinkedHashMap<Long, Cache.Item>
+    {
+	static class Item
+	{
+	    final int type;
+	    final byte[] data;
+
+	    Item(int type, byte[] data) {
+		this.type = type;
+		this.data = data;
+	    }
+	}
+
+	private long bytes;
+
+	Cache() {
+	    super(256, 0.75f, true);
+	}
+
+	void put(long key, int type, byte[] data) {
+	    if (data.length > CACHE_BYTES / 4)
+		return;
+	    Item old = put(Long.valueOf(key), new Item(type, data));
+	    if (old != null)
+		bytes -= old.data.length;
+	    bytes += data.length;
+	}
+
+	Item get(long key) {
+	    return get(Long.valueOf(key));
+	}
+
+	protected boolean removeEldestEntry(Map.Entry<Long, Item> eldest) {
+	    if (bytes <= CACHE_BYTES)
+		return false;
+	    bytes -= eldest.getValue().data.length;
+	    return true;
+	}
+    }
+
+    /**
+     * A packfile and its index.  The packfile is mapped in segments
+     * that overlap, so most objects lie wholly within one segment.
+     * Objects that do not are mapped by themselves.
+     */
+    private static class Pack
+    {
+	private final static int IDX_MAGIC = 0xff744f63;
+	private final static long SEGMENT = 1L << 30;
+	private final static long OVERLAP = 64L << 20;
+	private final static int TRAILER = 20;
+
+	final int number;
+	private final RandomAccessFile packFile;
+	private final FileChannel channel;
+	private final long length;
+	private final ByteBuffer idx;
+	private final int version;
+	private final int count;
+	private final long[] offsets; // sorted, with the end of the data
+	private final ByteBuffer[] segments;
+
+	Pack(int number, File idxFile, File pack) throws IOException {
+	    this.number = number;
+	    RandomAccessFile f = new RandomAccessFile(idxFile, "r");
+	    try {
+		FileChannel ch = f.getChannel();
+		idx = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+	    }
+	    finally {
+		f.close();
+	    }
+	    if (idx.getInt(0) == IDX_MAGIC) {
+		version = idx.getInt(4);
+		if (version != 2)
+		    throw new IOException(idxFile + ": unknown version");
+	    }
+	    else
+		version = 1;
+	    count = idx.getInt(fanout() + 255 * 4);
+	    packFile = new RandomAccessFile(pack, "r");
+	    channel = packFile.getChannel();
+	    length = channel.size();
+	    offsets = new long[count + 1];
+	    for (int i = 0; i < count; i++)
+		offsets[i] = offset(i);
+	    offsets[count] = length - TRAILER;
+	    Arrays.sort(offsets);
+	    segments = new ByteBuffer[(int)((length + SEGMENT - 1) / SEGMENT)];
+	}
+
+	private int fanout() {
+	    return version == 1 ? 0 : 8;
+	}
+
+	private int nameAt(int i) {
+	    if (version == 1)
+		return 1024 + i * 24 + 4;
+	    return 8 + 1024 + i * 20;
+	}
+
+	private long offset(int i) {
+	    if (version == 1)
+		return idx.getInt(1024 + i * 24) & 0xffffffffL;
+	    int base = 8 + 1024 + count * 24;
+	    int o = idx.getInt(base + i * 4);
+	    if (o >= 0)
+		return o;
+	    return idx.getLong(base + count * 4 + (o & 0x7fffffff) * 8);
+	}
+
+	/**
+	 * Find the offset of an object in the pack.
+	 * @return the offset or -1 if it is not in the pack
+	 */
+	long find(Id id) {
+	    int first = id.bytes[0] & 0xff;
+	    int lo = first == 0 ? 0 : idx.getInt(fanout() + (first - 1) * 4);
+	    int hi = idx.getInt(fanout() + first * 4) - 1;
+	    while (lo <= hi) {
+		int mid = (lo + hi) >>> 1;
+		int c = compare(nameAt(mid), id.bytes);
+		if (c == 0)
+		    return offset(mid);
+		else if (c < 0)
+		    lo = mid + 1;
+		else
+		    hi = mid - 1;
+	    }
+	    return -1;
+	}
+
+	private int compare(int position, byte[] name) {
+	    for (int i = 0; i < 20; i++) {
+		int a = idx.get(position + i) & 0xff;
+		int b = name[i] & 0xff;
+		if (a != b)
+		    return a - b;
+	    }
+	    return 0;
+	}
+
+	/**
+	 * Get the offset that follows an object.
+	 */
+	long end(long offset) throws IOException {
+	    int i = Arrays.binarySearch(offsets, offset);
+	    if (i < 0 || i + 1 >= offsets.length)
+		throw new IOException("bad object offset");
+	    return offsets[i + 1];
+	}
+
+	/**
+	 * Get a buffer holding a region of the pack, with position
+	 * zero at the start of the region.
+	 */
+	ByteBuffer slice(long offset, long size) throws IOException {
+	    int s = (int)(offset / SEGMENT);
+	    long start = s * SEGMENT;
+	    long mapped = Math.min(SEGMENT + OVERLAP, length - start);
+	    if (offset + size <= start + mapped) {
+		if (segments[s] == null)
+		    segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+					      start, mapped);
+		ByteBuffer b = segments[s].duplicate();
+		b.position((int)(offset - start));
+		b.limit((int)(offset - start + size));
+		return b.slice();
+	    }
+	    if (size > Integer.MAX_VALUE)
+		throw new IOException("object too large to map");
+	    return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+	}
+
+	void close() {
+	    try {
+		packFile.close();
+	    }
+	    catch (IOException ioe) {
+	    }
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
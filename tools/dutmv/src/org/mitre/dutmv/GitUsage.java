@@ -0,0 +1,402 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import javax.swing.*;
+import org.mitre.treemap.*;
+
+/**
+ * A tree map factory for the paths in a git repository.  The tree
+ * shows the paths in a chosen commit, and the paths removed in its
+ * history.  Each path is weighted by the sizes of all the versions of
+ * it found in the history of the commit.  Its size is the number of
+ * bytes its versions take in the repository, and its expanded size
+ * is their uncompressed size.  The number of files of a path is its
+ * number of versions.
+ * <p>
+ * Objects are read with a {@link GitRepository}, so no git program
+ * is needed, and the contents of files are never inflated.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+class GitUsage
+    implements TreeMapRefreshFactory
+{
+    final static Color REMOVED_COLOR = new Color(255, 218, 218);
+    private final static int POLL_COMMITS = 64;
+    private final static String TREE_MODE = "40000";
+    private final static String GITLINK_MODE = "160000";
+
+    private final String revision;
+    private final JFrame frame;
+    private JFileChooser chooser; // created when first needed
+    private volatile File repository; // repository last scanned
+
+    /**
+     * Create a factory for git repositories.
+     * @param repository repository initially scanned by refreshTree
+     * @param revision commit whose history is shown
+     * @param frame parent of the file dialog
+     */
+    GitUsage(File repository, String revision, JFrame frame) {
+	this.repository = repository;
+	this.revision = revision;
+	this.frame = frame;
+    }
+
+    /**
+     * Create a tree that shows a repository selected with a dialog.
+     */
+    public TreeMapNode createTree() {
+	if (chooser == null) {
+	    chooser = new JFileChooser();
+	    chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+	}
+	chooser.setSelectedFile(repository);
+	if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+	    return null;
+	repository = chooser.getSelectedFile();
+	return refreshTree();
+    }
+
+    /**
+     * Create a tree that shows the repository last selected.
+     */
+    public TreeMapNode refreshTree() {
+	File dir = repository;
+	if (dir == null)
+	    return null;
+	try {
+	    return createGitTree(dir, revision, System.currentTimeMillis());
+	}
+	catch (InterruptedException ie) {
+	    return null;
+	}
+	catch (IOException ioe) {
+	    throw new RuntimeException(dir + ": " + ioe.getMessage(), ioe);
+	}
+    }
+
+    /**
+     * Create a node for a repository with the paths in the history of
+     * a commit as its descendants.
+     * @param dir the repository
+     * @param revision the commit
+     * @param now time used to compute ages
+     */
+    static DiskUsageNode createGitTree(File dir, String revision, long now)
+	throws IOException, InterruptedException
+    {
+	GitRepository repo = new GitRepository(dir);
+	try {
+	    Scan scan = new Scan(repo, now);
+	    Path root = new Path(dir.getName(), true);
+	    // The history is walked newest first from the chosen
+	    // commit, so its tree is walked first and marks the
+	    // paths still present.
+	    GitRepository.Id start = scan.peel(repo.resolve(revision));
+	    HashSet<GitRepository.Id> seen = new HashSet<GitRepository.Id>();
+	    ArrayDeque<GitRepository.Id> pending
+		= new ArrayDeque<GitRepository.Id>();
+	    seen.add(start);
+	    pending.add(start);
+	    boolean current = true;
+	    while (!pending.isEmpty()) {
+		GitRepository.Id id = pending.removeFirst();
+		Commit commit = scan.commit(id);
+		scan.walk(root, commit.tree, commit.time, current);
+		current = false;
+		for (int i = 0; i < commit.parents.length; i++) {
+		    GitRepository.Id p = commit.parents[i];
+		    // A shallow clone lacks the parents of its oldest
+		    // commits.
+		    if (seen.add(p) && repo.contains(p))
+			pending.addLast(p);
+		}
+	    }
+	    root.total();
+	    return root.toNode();
+	}
+	finally {
+	    repo.close();
+	}
+    }
+
+    /**
+     * A commit, reduced to what a scan needs.
+     */
+    private static class Commit
+    {
+	GitRepository.Id tree;
+	GitRepository.Id[] parents;
+	long time;		// commit time in milliseconds
+    }
+
+    /**
+     * The state of a scan.
+     */
+    private static class Scan
+    {
+	final GitRepository repo;
+	final long now;
+	final int[] type = new int[1];
+	final long[] sizes = new long[2];
+	int commits;
+
+	Scan(GitRepository repo, long now) {
+	    this.repo = repo;
+	    this.now = now;
+	}
+
+	/**
+	 * Follow annotated tags to the commit they name.
+	 */
+	GitRepository.Id peel(GitRepository.Id id) throws IOException {
+	    for (;;) {
+		byte[] data = repo.read(id, type);
+		if (type[0] == GitRepository.COMMIT)
+		    return id;
+		if (type[0] != GitRepository.TAG)
+		    throw new IOException(id + ": not a commit");
+		id = headerId(data, "object ");
+	    }
+	}
+
+	/**
+	 * Read a commit, now and then polling for interrupts and
+	 * publishing progress.
+	 */
+	Commit commit(GitRepository.Id id)
+	    throws IOException, InterruptedException
+	{
+	    if (++commits % POLL_COMMITS == 0) {
+		if (Thread.interrupted())
+		    throw new InterruptedException("Interrupt detected by "
+						   + "polling");
+		TreeMapProgress.publish(commits + " commits");
+	    }
+	    byte[] data = repo.read(id, type);
+	    if (type[0] != GitRepository.COMMIT)
+		throw new IOException(id + ": not a commit");
+	    String text = new String(data, StandardCharsets.ISO_8859_1);
+	    int body = text.indexOf("\n\n");
+	    if (body >= 0)
+		text = text.substring(0, body);
+	    String[] lines = text.split("\n");
+	    Commit c = new Commit();
+	    int parents = 0;
+	    for (int i = 0; i < lines.length; i++)
+		if (lines[i].startsWith("parent "))
+		    parents++;
+	    c.parents = new GitRepository.Id[parents];
+	    parents = 0;
+	    for (int i = 0; i < lines.length; i++) {
+		String line = lines[i];
+		if (line.startsWith("tree "))
+		    c.tree = hex(line.substring(5));
+		else if (line.startsWith("parent "))
+		    c.parents[parents++] = hex(line.substring(7));
+		else if (line.startsWith("committer ")) {
+		    // committer NAME <EMAIL> SECONDS ZONE
+		    String[] words = line.split(" ");
+		    try {
+			c.time = Long.parseLong(words[words.length - 2])
+			    * 1000L;
+		    }
+		    catch (RuntimeException ex) {
+			c.time = 0;
+		    }
+		}
+	    }
+	    if (c.tree == null)
+		throw new IOException(id + ": commit has no tree");
+	    return c;
+	}
+
+	/**
+	 * Add the versions of the paths in a tree to the versions
+	 * already found.  A tree already seen at a path holds nothing
+	 * new, so only the trees that changed are read.
+	 * @param dir the path of the tree
+	 * @param tree the tree's name
+	 * @param time time of the commit that holds the tree
+	 * @param current true if the tree is in the chosen commit
+	 */
+	void walk(Path dir, GitRepository.Id tree, long time,
+		  boolean current)
+	    throws IOException
+	{
+	    if (!dir.seen.add(tree))
+		return;
+	    byte[] data = repo.read(tree, type);
+	    if (type[0] != GitRepository.TREE)
+		throw new IOException(tree + ": not a tree");
+	    // Entries are MODE SP NAME NUL followed by a binary name.
+	    int i = 0;
+	    while (i < data.length) {
+		int space = i;
+		while (data[space] != ' ')
+		    space++;
+		int nul = space + 1;
+		while (data[nul] != 0)
+		    nul++;
+		String mode = new String(data, i, space - i,
+					 StandardCharsets.US_ASCII);
+		String name = new String(data, space + 1, nul - space - 1,
+					 StandardCharsets.UTF_8);
+		GitRepository.Id id
+		    = GitRepository.Id.fromBytes(data, nul + 1);
+		i = nul + 21;
+		if (mode.equals(GITLINK_MODE)) // a submodule
+		    continue;
+		boolean directory = mode.equals(TREE_MODE);
+		Path p = dir.child(name, directory);
+		if (current)
+		    p.current = true;
+		if (directory)
+		    walk(p, id, time, current);
+		else if (p.seen.add(id)) {
+		    repo.sizes(id, sizes);
+		    p.addVersion(sizes[0], sizes[1], time, now);
+		}
+	    }
+	}
+
+	private static GitRepository.Id hex(String s) throws IOException {
+	    GitRepository.Id id = GitRepository.Id.fromHex(s.trim());
+	    if (id == null)
+		throw new IOException("bad object name " + s);
+	    return id;
+	}
+
+	private static GitRepository.Id headerId(byte[] data, String key)
+	    throws IOException
+	{
+	    String text = new String(data, StandardCharsets.ISO_8859_1);
+	    String[] lines = text.split("\n");
+	    for (int i = 0; i < lines.length && lines[i].length() > 0; i++)
+		if (lines[i].startsWith(key))
+		    return hex(lines[i].substring(key.length()));
+	    throw new IOException("no " + key.trim() + " in header");
+	}
+    }
+
+    /**
+     * A path in the history, with the names of the versions of it
+     * already found.  The tree of paths is converted into disk usage
+     * nodes once the whole history has been walked.
+     */
+    private static class Path
+    {
+	final String name;
+	final double[] weights = new double[DiskUsage.METRIC_NAMES.length];
+	final HashSet<GitRepository.Id> seen
+	    = new HashSet<GitRepository.Id>();
+	java.util.TreeMap<String, Path> children; // null for a file
+	boolean current;	// in the chosen commit
+
+	Path(String name, boolean directory) {
+	    this.name = name;
+	    current = true;
+	    if (directory)
+		children = new java.util.TreeMap<String, Path>();
+	}
+
+	/**
+	 * Find or make a child.  A path that was a file in one
+	 * commit and a directory in another is kept as a directory.
+	 */
+	Path child(String part, boolean directory) {
+	    Path p = children.get(part);
+	    if (p == null) {
+		p = new Path(part, directory);
+		p.current = false;
+		children.put(part, p);
+	    }
+	    else if (directory && p.children == null)
+		p.children = new java.util.TreeMap<String, Path>();
+	    return p;
+	}
+
+	/**
+	 * Add the weights of a version of a file.
+	 * @param stored bytes taken in the repository
+	 * @param expanded uncompressed bytes
+	 * @param time time of the newest commit found holding it
+	 * @param now time used to compute ages
+	 */
+	void addVersion(long stored, long expanded, long time, long now) {
+	    double age = time <= 0 ? 0.0
+		: Math.max(now - time, 0) / DiskUsage.MILLISECONDS_PER_DAY;
+	    weights[DiskUsage.SIZE] += stored;
+	    weights[DiskUsage.BLOCKS] += stored;
+	    weights[DiskUsage.FILES] += 1;
+	    weights[DiskUsage.AGE] += stored * age;
+	    weights[DiskUsage.EXPANDED] += expanded;
+	}
+
+	/**
+	 * Add the weights of the children into the weights of this
+	 * path.
+	 */
+	void total() {
+	    if (children == null)
+		return;
+	    for (Iterator<Path> i = children.values().iterator();
+		 i.hasNext(); ) {
+		Path p = i.next();
+		p.total();
+		for (int m = 0; m < weights.length; m++)
+		    weights[m] += p.weights[m];
+	    }
+	}
+
+	DiskUsageNode toNode() {
+	    DiskUsageNode node = new DiskUsageNode(name);
+	    if (!current)
+		node.setColor(REMOVED_COLOR);
+	    else if (children != null)
+		node.setColor(DiskUsage.DIRECTORY_COLOR);
+	    else
+		node.setColor(DiskUsage.FILE_COLOR);
+	    node.setWeights(weights);
+	    if (children != null && children.size() > 0) {
+		DiskUsageNode[] kids = new DiskUsageNode[children.size()];
+		int k = 0;
+		for (Iterator<Path> i = children.values().iterator();
+		     i.hasNext(); ) {
+		    DiskUsageNode kid = i.next().toNode();
+		    kid.setParent(node);
+		    kids[k++] = kid;
+		}
+		node.setChildren(kids);
+	    }
+	    return node;
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
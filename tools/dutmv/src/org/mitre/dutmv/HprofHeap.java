@@ -0,0 +1,1027 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.mitre.treemap.TreeMapProgress;
+
+/**
+ * The dominator tree of an HPROF heap dump.  The dump is streamed
+ * twice: once for its names, classes and roots, and once for its
+ * objects and references.  Everything that grows with the number of
+ * objects is kept in arrays mapped from temporary files, so a dump
+ * larger than the viewer's heap can be read.  Immediate dominators
+ * are found with the algorithm of Lengauer and Tarjan, and retained
+ * sizes are summed up the dominator tree.
+ * <p>
+ * Vertex zero is a root that refers to every GC root, and vertex
+ * i + 1 is the i'th object in the dump.  Shallow sizes are estimates,
+ * since a dump does not record object headers or padding.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class HprofHeap
+    implements Closeable
+{
+    // Record tags
+    private final static int UTF8 = 0x01;
+    private final static int LOAD_CLASS = 0x02;
+    private final static int HEAP_DUMP = 0x0c;
+    private final static int HEAP_DUMP_SEGMENT = 0x1c;
+
+    // Heap dump sub-record tags
+    private final static int ROOT_UNKNOWN = 0xff;
+    private final static int ROOT_JNI_GLOBAL = 0x01;
+    private final static int ROOT_JNI_LOCAL = 0x02;
+    private final static int ROOT_JAVA_FRAME = 0x03;
+    private final static int ROOT_NATIVE_STACK = 0x04;
+    private final static int ROOT_THREAD_BLOCK = 0x06;
+    private final static int ROOT_THREAD_OBJECT = 0x08;
+    private final static int CLASS_DUMP = 0x20;
+    private final static int INSTANCE_DUMP = 0x21;
+    private final static int OBJ_ARRAY_DUMP = 0x22;
+    private final static int PRIM_ARRAY_DUMP = 0x23;
+
+    // Basic types
+    private final static int OBJECT = 2;
+    private final static int BOOLEAN = 4;
+    private final static String[] PRIMITIVE_NAMES = {
+	"boolean", "char", "float", "double", "byte", "short", "int", "long"
+    };
+    private final static String PRIMITIVE_CODES = "ZCFDBSIJ";
+
+    private final static int POLL_OBJECTS = 65536;
+    private final static int NONE = -1;
+
+    private final ArrayList<ClassInfo> classes = new ArrayList<ClassInfo>();
+    private final HashMap<Long, ClassInfo> byId
+	= new HashMap<Long, ClassInfo>();
+    private int classType;	// index of java.lang.Class
+    private int primitiveType;	// index of boolean[]
+    private int idSize;		// bytes in an object id
+    private long polled;
+    private final ArrayList<Slab> temporary = new ArrayList<Slab>();
+
+    // Results
+    private int n;		// vertices, including the root
+    private Slab ids;		// object id by vertex
+    private Slab types;		// class index by vertex
+    private Slab retained;	// retained bytes by vertex
+    private Slab counts;	// retained objects by vertex
+    private Slab domEnd;	// end of dominated vertices by vertex
+    private Slab dominated;	// vertices by immediate dominator
+
+    private HprofHeap() {
+    }
+
+    /**
+     * Read a heap dump and compute its dominator tree.
+     */
+    static HprofHeap read(File file)
+	throws IOException, InterruptedException
+    {
+	HprofHeap heap = new HprofHeap();
+	boolean done = false;
+	try {
+	    heap.build(file);
+	    done = true;
+	    return heap;
+	}
+	catch (UncheckedIOException uioe) { // from a mapped array
+	    throw uioe.getCause();
+	}
+	finally {
+	    heap.closeTemporary();
+	    if (!done)
+		heap.close();
+	}
+    }
+
+    /**
+     * Release the temporary files of the results.
+     */
+    public void close() {
+	Slab[] slabs = { ids, types, retained, counts, domEnd, dominated };
+	for (int i = 0; i < slabs.length; i++)
+	    if (slabs[i] != null)
+		slabs[i].close();
+	ids = types = retained = counts = domEnd = dominated = null;
+    }
+
+    /**
+     * Make an array used only while building the dominator tree.
+     */
+    private Slab temporary(int elementSize) throws IOException {
+	Slab s = new Slab(elementSize);
+	temporary.add(s);
+	return s;
+    }
+
+    private void closeTemporary() {
+	for (int i = 0; i < temporary.size(); i++)
+	    temporary.get(i).close();
+	temporary.clear();
+    }
+
+    // Access to results
+
+    /**
+     * Get the number of vertices, one more than the number of
+     * objects.
+     */
+    int vertices() {
+	return n;
+    }
+
+    long id(int v) {
+	return ids.getLong(v);
+    }
+
+    /**
+     * Get the class index of a vertex.
+     */
+    int type(int v) {
+	return types.getInt(v);
+    }
+
+    String className(int type) {
+	return classes.get(type).name;
+    }
+
+    /**
+     * Get a label for the object of a vertex: the name of the class
+     * for a class, and otherwise its simple class name and id.
+     */
+    String label(int v) {
+	long id = ids.getLong(v);
+	int type = types.getInt(v);
+	if (type == classType) {
+	    ClassInfo c = byId.get(id);
+	    if (c != null)
+		return "class " + c.name;
+	}
+	String name = classes.get(type).name;
+	return name.substring(name.lastIndexOf('.') + 1) + "@"
+	    + Long.toHexString(id);
+    }
+
+    long retainedSize(int v) {
+	return retained.getLong(v);
+    }
+
+    int retainedCount(int v) {
+	return counts.getInt(v);
+    }
+
+    /**
+     * Get the number of vertices immediately dominated by a vertex.
+     */
+    int dominatedCount(int v) {
+	return domEnd.getInt(v) - (v == 0 ? 0 : domEnd.getInt(v - 1));
+    }
+
+    /**
+     * Get the k'th vertex immediately dominated by a vertex.
+     */
+    int dominated(int v, int k) {
+	return dominated.getInt((v == 0 ? 0 : domEnd.getInt(v - 1)) + k);
+    }
+
+    // Classes
+
+    /**
+     * A class, or a primitive array type.
+     */
+    private static class ClassInfo
+    {
+	final int index;
+	final long id;		// zero for a primitive array type
+	String name;
+	long superId;
+	long instanceSize;
+	long[] others = new long[0]; // loader, signers and so on
+	long[] statics = new long[0]; // referenced by static fields
+	byte[] fieldTypes = new byte[0]; // declared instance fields
+	int[] refOffsets = new int[0]; // references in instance data
+
+	ClassInfo(int index, long id) {
+	    this.index = index;
+	    this.id = id;
+	}
+    }
+
+    /**
+     * Convert a class name from a dump into the form used in source.
+     */
+    private static String sourceName(String name) {
+	name = name.replace('/', '.');
+	int dims = 0;
+	while (dims < name.length() && name.charAt(dims) == '[')
+	    dims++;
+	if (dims == 0)
+	    return name;
+	String base = name.substring(dims);
+	if (base.startsWith("L") && base.endsWith(";"))
+	    base = base.substring(1, base.length() - 1);
+	else if (base.length() == 1
+		 && PRIMITIVE_CODES.indexOf(base.charAt(0)) >= 0)
+	    base = PRIMITIVE_NAMES[PRIMITIVE_CODES.indexOf(base.charAt(0))];
+	StringBuffer sb = new StringBuffer(base);
+	for (; dims > 0; dims--)
+	    sb.append("[]");
+	return sb.toString();
+    }
+
+    // Reading
+
+    private void poll(String phase, long done) throws InterruptedException {
+	if (++polled % POLL_OBJECTS != 0)
+	    return;
+	if (Thread.interrupted())
+	    throw new InterruptedException("Interrupt detected by "
+					   + "polling");
+	TreeMapProgress.publish(phase + " " + done);
+    }
+
+    private int basicSize(int type) throws IOException {
+	switch (type) {
+	case OBJECT:
+	    return idSize;
+	case 4: case 8:		// boolean, byte
+	    return 1;
+	case 5: case 9:		// char, short
+	    return 2;
+	case 6: case 10:	// float, int
+	    return 4;
+	case 7: case 11:	// double, long
+	    return 8;
+	default:
+	    throw new IOException("bad basic type " + type);
+	}
+    }
+
+    private long readId(DataInputStream in) throws IOException {
+	if (idSize == 4)
+	    return in.readInt() & 0xffffffffL;
+	return in.readLong();
+    }
+
+    private long getId(ByteBuffer b, int offset) {
+	if (idSize == 4)
+	    return b.getInt(offset) & 0xffffffffL;
+	return b.getLong(offset);
+    }
+
+    private static void skip(DataInputStream in, long bytes)
+	throws IOException
+    {
+	while (bytes > 0) {
+	    long k = in.skip(bytes);
+	    if (k <= 0) {
+		in.readByte();	// throws at end of file
+		k = 1;
+	    }
+	    bytes -= k;
+	}
+    }
+
+    /**
+     * Open a dump and read its header.
+     */
+    private DataInputStream open(File file) throws IOException {
+	DataInputStream in = new DataInputStream
+	    (new BufferedInputStream(new FileInputStream(file), 1 << 16));
+	StringBuffer sb = new StringBuffer();
+	int c;
+	while ((c = in.read()) > 0)
+	    sb.append((char)c);
+	idSize = c < 0 ? 0 : in.readInt();
+	if (!sb.toString().startsWith("JAVA PROFILE")
+	    || (idSize != 4 && idSize != 8)) {
+	    in.close();
+	    throw new IOException(file + ": not an HPROF heap dump");
+	}
+	in.readLong();		// time stamp
+	return in;
+    }
+
+    private static boolean isRoot(int sub) {
+	return sub == ROOT_UNKNOWN
+	    || (sub >= ROOT_JNI_GLOBAL && sub <= ROOT_THREAD_OBJECT);
+    }
+
+    /**
+     * Get the number of bytes that follow the object id of a root.
+     */
+    private int rootExtra(int sub) {
+	switch (sub) {
+	case ROOT_JNI_GLOBAL:
+	    return idSize;
+	case ROOT_JNI_LOCAL:
+	case ROOT_JAVA_FRAME:
+	case ROOT_THREAD_OBJECT:
+	    return 8;
+	case ROOT_NATIVE_STACK:
+	case ROOT_THREAD_BLOCK:
+	    return 4;
+	default:
+	    return 0;
+	}
+    }
+
+    private void build(File file) throws IOException, InterruptedException {
+	long[] roots = scanClasses(file);
+	for (int i = 0; i < classes.size(); i++)
+	    layout(classes.get(i));
+	ids = new Slab(8);
+	types = new Slab(4);
+	Slab sizes = temporary(8);
+	Slab edgeEnd = temporary(8);
+	Slab edgeIds = temporary(8);
+	scanObjects(file, roots, sizes, edgeEnd, edgeIds);
+	Slab targets = resolve(edgeEnd, edgeIds);
+	edgeIds.close();
+	dominate(sizes, edgeEnd, targets);
+    }
+
+    /**
+     * Read the names, classes and roots of a dump.
+     * @return the ids of the GC roots
+     */
+    private long[] scanClasses(File file)
+	throws IOException, InterruptedException
+    {
+	HashMap<Long, String> names = new HashMap<Long, String>();
+	HashMap<Long, Long> classNames = new HashMap<Long, Long>();
+	long[] roots = new long[1024];
+	int rootCount = 0;
+	DataInputStream in = open(file);
+	try {
+	    int tag;
+	    while ((tag = in.read()) >= 0) {
+		in.readInt();	// time
+		long length = in.readInt() & 0xffffffffL;
+		if (tag == UTF8) {
+		    long id = readId(in);
+		    byte[] b = new byte[(int)(length - idSize)];
+		    in.readFully(b);
+		    names.put(id, new String(b, StandardCharsets.UTF_8));
+		}
+		else if (tag == LOAD_CLASS) {
+		    in.readInt(); // serial number
+		    long id = readId(in);
+		    in.readInt(); // stack trace serial number
+		    classNames.put(id, readId(in));
+		}
+		else if (tag == HEAP_DUMP || tag == HEAP_DUMP_SEGMENT) {
+		    while (length > 0) {
+			int sub = in.readUnsignedByte();
+			length--;
+			if (sub == CLASS_DUMP) {
+			    long id = readId(in);
+			    ClassInfo c = byId.get(id);
+			    if (c == null) {
+				c = new ClassInfo(classes.size(), id);
+				classes.add(c);
+				byId.put(id, c);
+			    }
+			    length -= idSize + readClass(in, c);
+			}
+			else if (isRoot(sub)) {
+			    if (rootCount == roots.length)
+				roots = Arrays.copyOf(roots, 2 * rootCount);
+			    roots[rootCount++] = readId(in);
+			    int extra = rootExtra(sub);
+			    skip(in, extra);
+			    length -= idSize + extra;
+			}
+			else
+			    length -= skipObject(in, sub);
+			poll("Reading classes", classes.size());
+		    }
+		}
+		else
+		    skip(in, length);
+	    }
+	}
+	finally {
+	    in.close();
+	}
+	// Name the classes, and add java.lang.Class, if it is not
+	// there, and the primitive array types.
+	classType = NONE;
+	for (Iterator<Map.Entry<Long, ClassInfo>> i
+		 = byId.entrySet().iterator(); i.hasNext(); ) {
+	    Map.Entry<Long, ClassInfo> e = i.next();
+	    ClassInfo c = e.getValue();
+	    Long nameId = classNames.get(e.getKey());
+	    String name = nameId == null ? null : names.get(nameId);
+	    c.name = name == null
+		? "0x" + Long.toHexString(c.id) : sourceName(name);
+	    if (c.name.equals("java.lang.Class"))
+		classType = c.index;
+	}
+	if (classType == NONE) {
+	    ClassInfo c = new ClassInfo(classes.size(), 0);
+	    c.name = "java.lang.Class";
+	    classType = c.index;
+	    classes.add(c);
+	}
+	primitiveType = classes.size();
+	for (int i = 0; i < PRIMITIVE_NAMES.length; i++) {
+	    ClassInfo c = new ClassInfo(classes.size(), 0);
+	    c.name = PRIMITIVE_NAMES[i] + "[]";
+	    classes.add(c);
+	}
+	return Arrays.copyOf(roots, rootCount);
+    }
+
+    /**
+     * Read the rest of a class dump after its id.
+     * @return the number of bytes read
+     */
+    private long readClass(DataInputStream in, ClassInfo c)
+	throws IOException
+    {
+	in.readInt();		// stack trace serial number
+	c.superId = readId(in);
+	c.others = new long[5];	// loader, signers, domain, reserved
+	for (int i = 0; i < c.others.length; i++)
+	    c.others[i] = readId(in);
+	c.instanceSize = in.readInt() & 0xffffffffL;
+	long used = 4 + 6L * idSize + 4;
+	int pool = in.readUnsignedShort();
+	used += 2;
+	for (int i = 0; i < pool; i++) {
+	    in.readUnsignedShort();
+	    int size = basicSize(in.readUnsignedByte());
+	    skip(in, size);
+	    used += 3 + size;
+	}
+	int statics = in.readUnsignedShort();
+	used += 2;
+	long[] refs = new long[statics];
+	int k = 0;
+	for (int i = 0; i < statics; i++) {
+	    readId(in);		// name
+	    int type = in.readUnsignedByte();
+	    int size = basicSize(type);
+	    if (type == OBJECT)
+		refs[k++] = readId(in);
+	    else
+		skip(in, size);
+	    used += idSize + 1 + size;
+	}
+	c.statics = Arrays.copyOf(refs, k);
+	int fields = in.readUnsignedShort();
+	used += 2;
+	c.fieldTypes = new byte[fields];
+	for (int i = 0; i < fields; i++) {
+	    readId(in);		// name
+	    c.fieldTypes[i] = (byte)in.readUnsignedByte();
+	    used += idSize + 1;
+	}
+	return used;
+    }
+
+    /**
+     * Find the offsets of the references in the instance data of a
+     * class.  The fields of a class come before those of its super
+     * class.
+     */
+    private void layout(ClassInfo c)
+	throws IOException
+    {
+	int[] offsets = new int[8];
+	int k = 0;
+	int offset = 0;
+	int depth = 0;
+	for (ClassInfo s = c; s != null; s = byId.get(s.superId)) {
+	    if (++depth > classes.size())
+		throw new IOException("class hierarchy cycle");
+	    for (int i = 0; i < s.fieldTypes.length; i++) {
+		int type = s.fieldTypes[i];
+		if (type == OBJECT) {
+		    if (k == offsets.length)
+			offsets = Arrays.copyOf(offsets, 2 * k);
+		    offsets[k++] = offset;
+		}
+		offset += basicSize(type);
+	    }
+	}
+	c.refOffsets = Arrays.copyOf(offsets, k);
+    }
+
+    /**
+     * Skip an object in a heap dump.
+     * @return the number of bytes read
+     */
+    private long skipObject(DataInputStream in, int sub) throws IOException {
+	skip(in, idSize + 4);	// id and stack trace serial number
+	long used = idSize + 4;
+	switch (sub) {
+	case INSTANCE_DUMP: {
+	    readId(in);
+	    long length = in.readInt() & 0xffffffffL;
+	    skip(in, length);
+	    return used + idSize + 4 + length;
+	}
+	case OBJ_ARRAY_DUMP: {
+	    long length = (in.readInt() & 0xffffffffL) * idSize;
+	    readId(in);
+	    skip(in, length);
+	    return used + 4 + idSize + length;
+	}
+	case PRIM_ARRAY_DUMP: {
+	    long count = in.readInt() & 0xffffffffL;
+	    long length = count * basicSize(in.readUnsignedByte());
+	    skip(in, length);
+	    return used + 5 + length;
+	}
+	default:
+	    throw new IOException("unknown heap dump record " + sub);
+	}
+    }
+
+    /**
+     * Estimate the size of an object given the size of what follows
+     * its header.
+     */
+    private long shallow(long body) {
+	long header = idSize == 8 ? 16 : 8;
+	return (header + body + 7) & ~7L;
+    }
+
+    /**
+     * Read the objects of a dump and their references, as ids.  The
+     * references of the root vertex are the GC roots.
+     */
+    private void scanObjects(File file, long[] roots, Slab sizes,
+			     Slab edgeEnd, Slab edgeIds)
+	throws IOException, InterruptedException
+    {
+	long edges = 0;
+	for (int i = 0; i < roots.length; i++)
+	    edgeIds.putLong(edges++, roots[i]);
+	types.putInt(0, NONE);
+	edgeEnd.putLong(0, edges);
+	int v = 1;
+	ClassInfo scratch = new ClassInfo(NONE, 0);
+	byte[] data = new byte[256];
+	DataInputStream in = open(file);
+	try {
+	    int tag;
+	    while ((tag = in.read()) >= 0) {
+		in.readInt();	// time
+		long length = in.readInt() & 0xffffffffL;
+		if (tag != HEAP_DUMP && tag != HEAP_DUMP_SEGMENT) {
+		    skip(in, length);
+		    continue;
+		}
+		while (length > 0) {
+		    int sub = in.readUnsignedByte();
+		    length--;
+		    if (isRoot(sub)) {
+			int extra = rootExtra(sub);
+			skip(in, idSize + extra);
+			length -= idSize + extra;
+			continue;
+		    }
+		    if (v == Integer.MAX_VALUE)
+			throw new IOException("too many objects");
+		    long id = readId(in);
+		    length -= idSize;
+		    int type;
+		    long size;
+		    if (sub == CLASS_DUMP) {
+			// A class refers to its super class, loader and
+			// statics.
+			length -= readClass(in, scratch);
+			ClassInfo c = byId.get(id);
+			edgeIds.putLong(edges++, c.superId);
+			for (int i = 0; i < c.others.length; i++)
+			    edgeIds.putLong(edges++, c.others[i]);
+			for (int i = 0; i < c.statics.length; i++)
+			    edgeIds.putLong(edges++, c.statics[i]);
+			type = classType;
+			size = shallow((long)idSize * c.statics.length);
+		    }
+		    else if (sub == INSTANCE_DUMP) {
+			in.readInt(); // stack trace serial number
+			ClassInfo c = byId.get(readId(in));
+			int bytes = in.readInt();
+			if (c == null || bytes < 0)
+			    throw new IOException("bad instance " + id);
+			if (bytes > data.length)
+			    data = new byte[Math.max(bytes, 2 * data.length)];
+			in.readFully(data, 0, bytes);
+			length -= 4 + idSize + 4 + bytes;
+			// An instance refers to its class and the
+			// objects in its fields.
+			edgeIds.putLong(edges++, c.id);
+			ByteBuffer b = ByteBuffer.wrap(data, 0, bytes);
+			for (int i = 0; i < c.refOffsets.length; i++) {
+			    int o = c.refOffsets[i];
+			    if (o + idSize <= bytes)
+				edgeIds.putLong(edges++, getId(b, o));
+			}
+			type = c.index;
+			size = c.instanceSize > 0 ? c.instanceSize
+			    : shallow(bytes);
+		    }
+		    else if (sub == OBJ_ARRAY_DUMP) {
+			in.readInt(); // stack trace serial number
+			long count = in.readInt() & 0xffffffffL;
+			ClassInfo c = byId.get(readId(in));
+			if (c == null)
+			    throw new IOException("bad array " + id);
+			for (long i = 0; i < count; i++)
+			    edgeIds.putLong(edges++, readId(in));
+			length -= 4 + 4 + idSize + count * idSize;
+			type = c.index;
+			size = shallow(4 + count * idSize);
+		    }
+		    else if (sub == PRIM_ARRAY_DUMP) {
+			in.readInt(); // stack trace serial number
+			long count = in.readInt() & 0xffffffffL;
+			int t = in.readUnsignedByte();
+			long bytes = count * basicSize(t);
+			if (t < BOOLEAN)
+			    throw new IOException("bad array " + id);
+			skip(in, bytes);
+			length -= 4 + 4 + 1 + bytes;
+			type = primitiveType + t - BOOLEAN;
+			size = shallow(4 + bytes);
+		    }
+		    else
+			throw new IOException("unknown heap dump record "
+					      + sub);
+		    ids.putLong(v, id);
+		    types.putInt(v, type);
+		    sizes.putLong(v, size);
+		    edgeEnd.putLong(v, edges);
+		    v++;
+		    poll("Reading objects", v);
+		}
+	    }
+	}
+	finally {
+	    in.close();
+	}
+	n = v;
+    }
+
+    // Dominators
+
+    private static long hash(long id, int bits) {
+	return (id * 0x9e3779b97f4a7c15L) >>> (64 - bits);
+    }
+
+    /**
+     * Replace the object ids of references by vertices, using a hash
+     * table of ids.  References to objects not in the dump become
+     * NONE.
+     * @return the target vertex of each reference
+     */
+    private Slab resolve(Slab edgeEnd, Slab edgeIds)
+	throws IOException, InterruptedException
+    {
+	int bits = 4;
+	while ((1L << bits) < 2L * n)
+	    bits++;
+	long mask = (1L << bits) - 1;
+	Slab keys = temporary(8);
+	Slab values = temporary(4);
+	for (int v = 1; v < n; v++) {
+	    long id = ids.getLong(v);
+	    long h = hash(id, bits);
+	    for (;;) {
+		long k = keys.getLong(h);
+		if (k == 0) {
+		    keys.putLong(h, id);
+		    values.putInt(h, v);
+		    break;
+		}
+		if (k == id)	// keep the first of duplicates
+		    break;
+		h = (h + 1) & mask;
+	    }
+	    poll("Indexing objects", v);
+	}
+	Slab targets = temporary(4);
+	long edges = edgeEnd.getLong(n - 1);
+	for (long e = 0; e < edges; e++) {
+	    long id = edgeIds.getLong(e);
+	    int target = NONE;
+	    if (id != 0)
+		for (long h = hash(id, bits); ; h = (h + 1) & mask) {
+		    long k = keys.getLong(h);
+		    if (k == id)
+			target = values.getInt(h);
+		    if (k == id || k == 0)
+			break;
+		}
+	    targets.putInt(e, target);
+	    poll("Resolving references", e);
+	}
+	keys.close();
+	values.close();
+	return targets;
+    }
+
+    private static long edgeStart(Slab edgeEnd, int v) {
+	return v == 0 ? 0 : edgeEnd.getLong(v - 1);
+    }
+
+    /**
+     * Compute the dominator tree, retained sizes and retained counts.
+     */
+    private void dominate(Slab sizes, Slab edgeEnd, Slab targets)
+	throws IOException, InterruptedException
+    {
+	// Predecessors, with predEnd[w] ending the range of w.
+	Slab predEnd = temporary(8);
+	Slab preds = temporary(4);
+	long edges = edgeEnd.getLong(n - 1);
+	for (long e = 0; e < edges; e++) {
+	    int w = targets.getInt(e);
+	    if (w != NONE)
+		predEnd.putLong(w, predEnd.getLong(w) + 1);
+	}
+	long sum = 0;
+	for (int w = 0; w < n; w++) {
+	    long c = predEnd.getLong(w);
+	    predEnd.putLong(w, sum);
+	    sum += c;
+	}
+	for (int u = 0; u < n; u++) {
+	    for (long e = edgeStart(edgeEnd, u); e < edgeEnd.getLong(u); e++) {
+		int w = targets.getInt(e);
+		if (w != NONE) {
+		    long p = predEnd.getLong(w);
+		    preds.putInt(p, u);
+		    predEnd.putLong(w, p + 1);
+		}
+	    }
+	    poll("Finding predecessors", u);
+	}
+
+	// Number the vertices reachable from the root in depth first
+	// order.  Numbers start at one, so zero means not reached.
+	Slab number = temporary(4);
+	Slab vertex = temporary(4);
+	Slab parent = temporary(4);
+	Slab stack = temporary(4);
+	Slab next = temporary(8);	// next edge of a vertex on the stack
+	int reached = 0;
+	int sp = 0;
+	number.putInt(0, ++reached);
+	vertex.putInt(reached, 0);
+	stack.putInt(sp, 0);
+	next.putLong(sp++, 0);
+	while (sp > 0) {
+	    int u = stack.getInt(sp - 1);
+	    long e = next.getLong(sp - 1);
+	    if (e >= edgeEnd.getLong(u)) {
+		sp--;
+		continue;
+	    }
+	    next.putLong(sp - 1, e + 1);
+	    int w = targets.getInt(e);
+	    if (w != NONE && number.getInt(w) == 0) {
+		parent.putInt(w, u);
+		number.putInt(w, ++reached);
+		vertex.putInt(reached, w);
+		stack.putInt(sp, w);
+		next.putLong(sp++, edgeStart(edgeEnd, w));
+		poll("Searching", reached);
+	    }
+	}
+	next.close();
+
+	// Semidominators and immediate dominators.
+	Slab semi = temporary(4);
+	Slab ancestor = temporary(4);
+	Slab label = temporary(4);
+	Slab bucket = temporary(4);
+	Slab bucketNext = temporary(4);
+	Slab idom = temporary(4);
+	for (int i = 1; i <= reached; i++) {
+	    int v = vertex.getInt(i);
+	    semi.putInt(v, i);
+	    ancestor.putInt(v, NONE);
+	    label.putInt(v, v);
+	    bucket.putInt(v, NONE);
+	}
+	for (int i = reached; i >= 2; i--) {
+	    int w = vertex.getInt(i);
+	    long start = w == 0 ? 0 : predEnd.getLong(w - 1);
+	    for (long p = start; p < predEnd.getLong(w); p++) {
+		int v = preds.getInt(p);
+		if (number.getInt(v) == 0)
+		    continue;
+		int u = eval(v, ancestor, label, semi, stack);
+		if (semi.getInt(u) < semi.getInt(w))
+		    semi.putInt(w, semi.getInt(u));
+	    }
+	    int s = vertex.getInt(semi.getInt(w));
+	    bucketNext.putInt(w, bucket.getInt(s));
+	    bucket.putInt(s, w);
+	    int pw = parent.getInt(w);
+	    ancestor.putInt(w, pw);
+	    for (int v = bucket.getInt(pw); v != NONE;
+		 v = bucketNext.getInt(v)) {
+		int u = eval(v, ancestor, label, semi, stack);
+		idom.putInt(v, semi.getInt(u) < semi.getInt(v) ? u : pw);
+	    }
+	    bucket.putInt(pw, NONE);
+	    poll("Finding dominators", reached - i);
+	}
+	for (int i = 2; i <= reached; i++) {
+	    int w = vertex.getInt(i);
+	    if (idom.getInt(w) != vertex.getInt(semi.getInt(w)))
+		idom.putInt(w, idom.getInt(idom.getInt(w)));
+	}
+
+	// Sum retained sizes and counts up the dominator tree, in
+	// reverse depth first order, and list the vertices by their
+	// immediate dominators.
+	retained = new Slab(8);
+	counts = new Slab(4);
+	domEnd = new Slab(4);
+	dominated = new Slab(4);
+	for (int i = 1; i <= reached; i++) {
+	    int v = vertex.getInt(i);
+	    retained.putLong(v, sizes.getLong(v));
+	    counts.putInt(v, v == 0 ? 0 : 1);
+	}
+	for (int i = reached; i >= 2; i--) {
+	    int w = vertex.getInt(i);
+	    int d = idom.getInt(w);
+	    retained.putLong(d, retained.getLong(d) + retained.getLong(w));
+	    counts.putInt(d, counts.getInt(d) + counts.getInt(w));
+	    domEnd.putInt(d, domEnd.getInt(d) + 1);
+	}
+	int total = 0;
+	for (int v = 0; v < n; v++) {
+	    int c = domEnd.getInt(v);
+	    domEnd.putInt(v, total);
+	    total += c;
+	}
+	for (int i = 2; i <= reached; i++) {
+	    int w = vertex.getInt(i);
+	    int d = idom.getInt(w);
+	    int p = domEnd.getInt(d);
+	    dominated.putInt(p, w);
+	    domEnd.putInt(d, p + 1);
+	}
+    }
+
+    /**
+     * Find the vertex with the least semidominator on the path to v
+     * in the forest built so far, compressing the path.
+     */
+    private static int eval(int v, Slab ancestor, Slab label, Slab semi,
+			    Slab stack)
+    {
+	if (ancestor.getInt(v) == NONE)
+	    return v;
+	// Collect the path whose ancestors are to be compressed.
+	int sp = 0;
+	int u = v;
+	while (ancestor.getInt(ancestor.getInt(u)) != NONE) {
+	    stack.putInt(sp++, u);
+	    u = ancestor.getInt(u);
+	}
+	// Compress from the top of the path down.
+	while (sp > 0) {
+	    u = stack.getInt(--sp);
+	    int a = ancestor.getInt(u);
+	    if (semi.getInt(label.getInt(a)) < semi.getInt(label.getInt(u)))
+		label.putInt(u, label.getInt(a));
+	    ancestor.putInt(u, ancestor.getInt(a));
+	}
+	return label.getInt(v);
+    }
+
+    /**
+     * An array of ints or longs mapped from a temporary file, in
+     * segments mapped as they are first used.  Elements not yet
+     * stored are zero.  Where the system allows it, the file is
+     * removed from its directory as soon as it is opened, so it goes
+     * away once it is closed and unmapped, or the program stops.
+     */
+    private static class Slab
+    {
+	private final static int SEGMENT_SHIFT = 26;
+	private final static int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private final int shift;	// log of the element size
+	private ByteBuffer[] segments = new ByteBuffer[16];
+	private boolean closed;
+
+	Slab(int elementSize) throws IOException {
+	    shift = elementSize == 8 ? 3 : 2;
+	    file = File.createTempFile("dutmv", ".tmp");
+	    try {
+		raf = new RandomAccessFile(file, "rw");
+	    }
+	    catch (IOException ioe) {
+		file.delete();
+		throw ioe;
+	    }
+	    file.delete();	// fails while open on some systems
+	    channel = raf.getChannel();
+	}
+
+	private ByteBuffer segment(long offset) {
+	    int s = (int)(offset >>> SEGMENT_SHIFT);
+	    if (s >= segments.length)
+		segments = Arrays.copyOf(segments,
+					 Math.max(s + 1, 2 * segments.length));
+	    ByteBuffer b = segments[s];
+	    if (b == null) {
+		try {
+		    b = channel.map(FileChannel.MapMode.READ_WRITE,
+				    (long)s << SEGMENT_SHIFT,
+				    1L << SEGMENT_SHIFT);
+		}
+		catch (IOException ioe) {
+		    throw new UncheckedIOException(ioe);
+		}
+		b.order(ByteOrder.nativeOrder());
+		segments[s] = b;
+	    }
+	    return b;
+	}
+
+	int getInt(long i) {
+	    long o = i << shift;
+	    return segment(o).getInt((int)(o & SEGMENT_MASK));
+	}
+
+	void putInt(long i, int value) {
+	    long o = i << shift;
+	    segment(o).putInt((int)(o & SEGMENT_MASK), value);
+	}
+
+	long getLong(long i) {
+	    long o = i << shift;
+	    return segment(o).getLong((int)(o & SEGMENT_MASK));
+	}
+
+	void putLong(long i, long value) {
+	    long o = i << shift;
+	    segment(o).putLong((int)(o & SEGMENT_MASK), value);
+	}
+
+	/**
+	 * Close the file, and delete it if it could not be deleted
+	 * when it was opened.  Its pages stay mapped until the buffers
+	 * are collected.
+	 */
+	void close() {
+	    if (closed)
+		return;
+	    closed = true;
+	    segments = null;
+	    try {
+		raf.close();
+	    }
+	    catch (IOException ioe) {
+	    }
+	    file.delete();
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
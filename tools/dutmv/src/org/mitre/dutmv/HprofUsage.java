@@ -0,0 +1,326 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import javax.swing.*;
+import org.mitre.treemap.*;
+
+/**
+ * A tree map factory for the retained sizes in an HPROF heap dump.
+ * The objects dominated by the GC roots are grouped by package and
+ * class, and the largest instances of each class are shown by
+ * themselves.  An instance that retains a large part of the heap is
+ * in turn divided into the objects it dominates, grouped the same
+ * way, to a limited depth.  Since each object is shown within its
+ * immediate dominator, the retained sizes add up.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+class HprofUsage
+    implements TreeMapRefreshFactory
+{
+    final static Color INSTANCE_COLOR = new Color(230, 230, 230);
+
+    // Metrics recorded for each node.
+    final static int RETAINED = 0; // bytes retained
+    final static int OBJECTS = 1; // objects retained
+    final static String[] METRIC_NAMES = {
+	"Retained", "Objects"
+    };
+
+    private final static int TOP_INSTANCES = 8; // shown by class
+    private final static int MAX_DEPTH = 3; // of divided instances
+    private final static double DIVIDE_FRACTION = 0.001; // of the heap
+    private final static int POLL_OBJECTS = 65536;
+
+    private final JFrame frame;
+    private JFileChooser chooser; // created when first needed
+    private volatile File dump;	// heap dump last read
+
+    /**
+     * Create a factory for heap dumps.
+     * @param dump heap dump initially read by refreshTree
+     * @param frame parent of the file dialog
+     */
+    HprofUsage(File dump, JFrame frame) {
+	this.dump = dump;
+	this.frame = frame;
+    }
+
+    /**
+     * Create a tree that shows a heap dump selected with a dialog.
+     */
+    public TreeMapNode createTree() {
+	if (chooser == null) {
+	    chooser = new JFileChooser();
+	    chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+	}
+	chooser.setSelectedFile(dump);
+	if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+	    return null;
+	dump = chooser.getSelectedFile();
+	return refreshTree();
+    }
+
+    /**
+     * Create a tree that shows the heap dump last selected.
+     */
+    public TreeMapNode refreshTree() {
+	File file = dump;
+	if (file == null)
+	    return null;
+	try {
+	    return createHprofTree(file);
+	}
+	catch (InterruptedException ie) {
+	    return null;
+	}
+	catch (IOException ioe) {
+	    throw new RuntimeException(file + ": " + ioe.getMessage(), ioe);
+	}
+    }
+
+    /**
+     * Is a file a heap dump, judging by its name?
+     */
+    static boolean isHeapDump(String name) {
+	return name.toLowerCase(Locale.ROOT).endsWith(".hprof");
+    }
+
+    /**
+     * Create a node for a heap dump with the objects it retains as
+     * its descendants.
+     */
+    static DiskUsageNode createHprofTree(File file)
+	throws IOException, InterruptedException
+    {
+	HprofHeap heap = HprofHeap.read(file);
+	try {
+	    long min = (long)(heap.retainedSize(0) * DIVIDE_FRACTION);
+	    DiskUsageNode root = new DiskUsageNode(file.getName());
+	    root.setColor(DiskUsage.DIRECTORY_COLOR);
+	    new Divider(heap, min).divide(root, 0, 0);
+	    return root;
+	}
+	finally {
+	    heap.close();
+	}
+    }
+
+    /**
+     * Divides the objects dominated by a vertex into packages,
+     * classes and instances.
+     */
+    private static class Divider
+    {
+	final HprofHeap heap;
+	final long min;		// retained by an instance divided
+	int polled;
+
+	Divider(HprofHeap heap, long min) {
+	    this.heap = heap;
+	    this.min = min;
+	}
+
+	/**
+	 * Set the weights and children of the node for a vertex.
+	 */
+	void divide(DiskUsageNode node, int v, int depth)
+	    throws InterruptedException
+	{
+	    node.setWeights(new double[] {
+		heap.retainedSize(v), heap.retainedCount(v)
+	    });
+	    HashMap<Integer, Group> groups = new HashMap<Integer, Group>();
+	    int k = heap.dominatedCount(v);
+	    for (int i = 0; i < k; i++) {
+		int w = heap.dominated(v, i);
+		Integer type = Integer.valueOf(heap.type(w));
+		Group g = groups.get(type);
+		if (g == null) {
+		    g = new Group(heap.className(type.intValue()));
+		    groups.put(type, g);
+		}
+		g.add(w, heap.retainedSize(w), heap.retainedCount(w));
+		if (++polled % POLL_OBJECTS == 0 && Thread.interrupted())
+		    throw new InterruptedException("Interrupt detected by "
+						   + "polling");
+	    }
+	    if (groups.isEmpty())
+		return;
+	    Package top = new Package(null);
+	    for (Iterator<Group> i = groups.values().iterator();
+		 i.hasNext(); ) {
+		Group g = i.next();
+		int dot = g.name.lastIndexOf('.');
+		Package p = top;
+		int start = 0;
+		while (start < dot) {
+		    int end = g.name.indexOf('.', start);
+		    p = p.child(g.name.substring(start, end));
+		    start = end + 1;
+		}
+		p.classes.add(classNode(g, g.name.substring(dot + 1), depth));
+	    }
+	    top.setChildren(node);
+	}
+
+	/**
+	 * Make the node for a class, with its largest instances and
+	 * the rest as children.
+	 */
+	private DiskUsageNode classNode(Group g, String name, int depth)
+	    throws InterruptedException
+	{
+	    DiskUsageNode node = new DiskUsageNode(name);
+	    node.setColor(JfrUsage.CLASS_COLOR);
+	    node.setWeights(new double[] { g.bytes, g.objects });
+	    ArrayList<DiskUsageNode> kids = new ArrayList<DiskUsageNode>();
+	    long restBytes = g.bytes;
+	    long restObjects = g.objects;
+	    for (int i = 0; i < g.top; i++) {
+		int w = g.vertices[i];
+		DiskUsageNode kid = new DiskUsageNode(heap.label(w));
+		kid.setColor(INSTANCE_COLOR);
+		if (depth < MAX_DEPTH && g.sizes[i] >= min)
+		    divide(kid, w, depth + 1);
+		else
+		    kid.setWeights(new double[] {
+			g.sizes[i], heap.retainedCount(w)
+		    });
+		restBytes -= g.sizes[i];
+		restObjects -= heap.retainedCount(w);
+		kids.add(kid);
+	    }
+	    int rest = g.count - g.top;
+	    if (rest > 0) {
+		DiskUsageNode kid = new DiskUsageNode("(" + rest + " more)");
+		kid.setColor(DiskUsage.FILE_COLOR);
+		kid.setWeights(new double[] { restBytes, restObjects });
+		kids.add(kid);
+	    }
+	    setChildren(node, kids);
+	    return node;
+	}
+    }
+
+    private static void setChildren(DiskUsageNode node,
+				    ArrayList<DiskUsageNode> kids) {
+	DiskUsageNode[] children = kids.toArray(new DiskUsageNode[0]);
+	for (int i = 0; i < children.length; i++)
+	    children[i].setParent(node);
+	node.setChildren(children);
+    }
+
+    /**
+     * The objects of one class dominated by a vertex, with the
+     * largest of them kept in descending order.
+     */
+    private static class Group
+    {
+	final String name;
+	final int[] vertices = new int[TOP_INSTANCES];
+	final long[] sizes = new long[TOP_INSTANCES];
+	int top;		// instances kept
+	int count;		// instances
+	long bytes;		// retained by all instances
+	long objects;
+
+	Group(String name) {
+	    this.name = name;
+	}
+
+	void add(int v, long size, int retained) {
+	    count++;
+	    bytes += size;
+	    objects += retained;
+	    if (top == TOP_INSTANCES && size <= sizes[top - 1])
+		return;
+	    int i = top < TOP_INSTANCES ? top++ : top - 1;
+	    for (; i > 0 && sizes[i - 1] < size; i--) {
+		vertices[i] = vertices[i - 1];
+		sizes[i] = sizes[i - 1];
+	    }
+	    vertices[i] = v;
+	    sizes[i] = size;
+	}
+    }
+
+    /**
+     * A package holding the classes of the objects dominated by a
+     * vertex.
+     */
+    private static class Package
+    {
+	final String name;
+	final java.util.TreeMap<String, Package> packages
+	    = new java.util.TreeMap<String, Package>();
+	final ArrayList<DiskUsageNode> classes
+	    = new ArrayList<DiskUsageNode>();
+
+	Package(String name) {
+	    this.name = name;
+	}
+
+	Package child(String part) {
+	    Package p = packages.get(part);
+	    if (p == null) {
+		p = new Package(part);
+		packages.put(part, p);
+	    }
+	    return p;
+	}
+
+	/**
+	 * Make the nodes of the packages and classes within this one
+	 * the children of a node.
+	 */
+	void setChildren(DiskUsageNode node) {
+	    ArrayList<DiskUsageNode> kids = new ArrayList<DiskUsageNode>();
+	    for (Iterator<Package> i = packages.values().iterator();
+		 i.hasNext(); )
+		kids.add(i.next().toNode());
+	    kids.addAll(classes);
+	    HprofUsage.setChildren(node, kids);
+	}
+
+	private DiskUsageNode toNode() {
+	    DiskUsageNode node = new DiskUsageNode(name);
+	    node.setColor(DiskUsage.DIRECTORY_COLOR);
+	    setChildren(node);
+	    double[] weights = new double[METRIC_NAMES.length];
+	    for (int i = 0; i < node.getChildCount(); i++) {
+		DiskUsageNode kid = (DiskUsageNode)node.getChildAt(i);
+		for (int m = 0; m < weights.length; m++)
+		    weights[m] += kid.getWeight(m);
+	    }
+	    node.setWeights(weights);
+	    return node;
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
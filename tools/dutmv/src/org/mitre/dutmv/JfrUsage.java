@@ -0,0 +1,318 @@
+package org.mitre.dutmv;
+
+import java.io.*;
+import java.awt.*;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.*;
+import jdk.jfr.consumer.*;
+import org.mitre.treemap.*;
+
+/**
+ * A tree map factory for the samples in a Java Flight Recorder
+ * recording.  Execution samples and allocation samples are charged
+ * to the method on top of the sampled stack, and the methods are
+ * shown in a tree of packages and classes.  The recording is
+ * streamed an event at a time, so the memory used grows with the
+ * number of methods sampled, not with the size of the recording.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+class JfrUsage
+    implements TreeMapRefreshFactory
+{
+    final static Color CLASS_COLOR = new Color(220, 230, 255);
+    private final static int POLL_EVENTS = 4096;
+    private final static int MAX_CACHED_METHODS = 65536;
+
+    // Metrics recorded for each node.
+    final static int SAMPLES = 0; // execution samples
+    final static int ALLOCATED = 1; // bytes allocated
+    final static String[] METRIC_NAMES = {
+	"Samples", "Allocated"
+    };
+    // Bytes allocated in and outside of TLABs, used only when a
+    // recording has no allocation samples.
+    private final static int TLAB_ALLOCATED = 2;
+
+    private final JFrame frame;
+    private JFileChooser chooser; // created when first needed
+    private volatile File recording; // recording last read
+
+    /**
+     * Create a factory for recordings.
+     * @param recording recording initially read by refreshTree
+     * @param frame parent of the file dialog
+     */
+    JfrUsage(File recording, JFrame frame) {
+	this.recording = recording;
+	this.frame = frame;
+    }
+
+    /**
+     * Create a tree that shows a recording selected with a dialog.
+     */
+    public TreeMapNode createTree() {
+	if (chooser == null) {
+	    chooser = new JFileChooser();
+	    chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+	}
+	chooser.setSelectedFile(recording);
+	if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+	    return null;
+	recording = chooser.getSelectedFile();
+	return refreshTree();
+    }
+
+    /**
+     * Create a tree that shows the recording last selected.
+     */
+    public TreeMapNode refreshTree() {
+	File file = recording;
+	if (file == null)
+	    return null;
+	try {
+	    return createJfrTree(file);
+	}
+	catch (InterruptedException ie) {
+	    return null;
+	}
+	catch (IOException ioe) {
+	    throw new RuntimeException(file + ": " + ioe.getMessage(), ioe);
+	}
+    }
+
+    /**
+     * Is a file a flight recording, judging by its name?
+     */
+    static boolean isRecording(String name) {
+	return name.toLowerCase(Locale.ROOT).endsWith(".jfr");
+    }
+
+    /**
+     * Create a node for a recording with the sampled methods as its
+     * descendants.
+     */
+    static DiskUsageNode createJfrTree(File file)
+	throws IOException, InterruptedException
+    {
+	Entry root = new Entry(file.getName(), DiskUsage.DIRECTORY_COLOR);
+	// Events of a chunk share their methods, so the entry of a
+	// method is found by identity, without building its name.
+	IdentityHashMap<RecordedMethod, Entry> methods
+	    = new IdentityHashMap<RecordedMethod, Entry>();
+	boolean sampled = false; // allocation samples seen
+	int events = 0;
+	RecordingFile in = new RecordingFile(file.toPath());
+	try {
+	    while (in.hasMoreEvents()) {
+		RecordedEvent event = in.readEvent();
+		if (++events % POLL_EVENTS == 0) {
+		    if (Thread.interrupted())
+			throw new InterruptedException("Interrupt detected "
+						       + "by polling");
+		    TreeMapProgress.publish(events + " events");
+		}
+		String type = event.getEventType().getName();
+		int metric;
+		double weight;
+		if (type.equals("jdk.ExecutionSample")) {
+		    metric = SAMPLES;
+		    weight = 1.0;
+		}
+		else if (type.equals("jdk.ObjectAllocationSample")) {
+		    metric = ALLOCATED;
+		    weight = event.getLong("weight");
+		    sampled = true;
+		}
+		else if (type.equals("jdk.ObjectAllocationInNewTLAB")) {
+		    metric = TLAB_ALLOCATED;
+		    weight = event.getLong("tlabSize");
+		}
+		else if (type.equals("jdk.ObjectAllocationOutsideTLAB")) {
+		    metric = TLAB_ALLOCATED;
+		    weight = event.getLong("allocationSize");
+		}
+		else
+		    continue;
+		Entry e = top(root, event.getStackTrace(), methods);
+		e.weights[metric] += weight;
+	    }
+	}
+	finally {
+	    in.close();
+	}
+	root.total(sampled);
+	return root.toNode();
+    }
+
+    /**
+     * Find the entry of the method on top of a stack.
+     */
+    private static Entry top(Entry root, RecordedStackTrace stack,
+			     IdentityHashMap<RecordedMethod, Entry> methods)
+    {
+	List<RecordedFrame> frames = stack == null ? null : stack.getFrames();
+	if (frames == null || frames.isEmpty())
+	    return root.child("(no stack)", DiskUsage.FILE_COLOR);
+	RecordedMethod method = frames.get(0).getMethod();
+	Entry e = methods.get(method);
+	if (e != null)
+	    return e;
+	if (methods.size() >= MAX_CACHED_METHODS)
+	    methods.clear();
+	String name = method.getType().getName();
+	// Strip the suffix of a hidden class before splitting.
+	int slash = name.indexOf('/');
+	int dot = name.lastIndexOf('.', slash < 0 ? name.length() : slash);
+	e = root;
+	int start = 0;
+	while (start < dot) {
+	    int end = name.indexOf('.', start);
+	    e = e.child(name.substring(start, end), DiskUsage.DIRECTORY_COLOR);
+	    start = end + 1;
+	}
+	e = e.child(name.substring(dot + 1), CLASS_COLOR);
+	e = e.child(method.getName() + parameters(method.getDescriptor()),
+		    DiskUsage.FILE_COLOR);
+	methods.put(method, e);
+	return e;
+    }
+
+    /**
+     * Write the parameter types of a method descriptor as they
+     * appear in source code, so that overloaded methods are kept
+     * apart.
+     */
+    static String parameters(String descriptor) {
+	StringBuffer sb = new StringBuffer("(");
+	int end = descriptor.indexOf(')');
+	int i = 1;
+	while (i < end) {
+	    int dims = 0;
+	    while (descriptor.charAt(i) == '[') {
+		dims++;
+		i++;
+	    }
+	    String type;
+	    char c = descriptor.charAt(i++);
+	    switch (c) {
+	    case 'B': type = "byte"; break;
+	    case 'C': type = "char"; break;
+	    case 'D': type = "double"; break;
+	    case 'F': type = "float"; break;
+	    case 'I': type = "int"; break;
+	    case 'J': type = "long"; break;
+	    case 'S': type = "short"; break;
+	    case 'Z': type = "boolean"; break;
+	    case 'L':
+		int semi = descriptor.indexOf(';', i);
+		if (semi < 0)
+		    return "(" + descriptor.substring(1, end) + ")";
+		type = descriptor.substring(i, semi);
+		type = type.substring(type.lastIndexOf('/') + 1);
+		i = semi + 1;
+		break;
+	    default:
+		return "(" + descriptor.substring(1, end) + ")";
+	    }
+	    if (sb.length() > 1)
+		sb.append(", ");
+	    sb.append(type);
+	    for (; dims > 0; dims--)
+		sb.append("[]");
+	}
+	return sb.append(')').toString();
+    }
+
+    /**
+     * A package, class or method.  The tree of entries is converted
+     * into disk usage nodes once the whole recording has been read.
+     */
+    private static class Entry
+    {
+	final String name;
+	final Color color;
+	final double[] weights = new double[METRIC_NAMES.length + 1];
+	java.util.TreeMap<String, Entry> children; // null for a method
+
+	Entry(String name, Color color) {
+	    this.name = name;
+	    this.color = color;
+	}
+
+	Entry child(String part, Color color) {
+	    if (children == null)
+		children = new java.util.TreeMap<String, Entry>();
+	    Entry e = children.get(part);
+	    if (e == null) {
+		e = new Entry(part, color);
+		children.put(part, e);
+	    }
+	    return e;
+	}
+
+	/**
+	 * Add the weights of the children into the weights of this
+	 * entry.
+	 * @param sampled true if allocation is measured by samples
+	 * rather than by TLAB events
+	 */
+	void total(boolean sampled) {
+	    if (!sampled)
+		weights[ALLOCATED] = weights[TLAB_ALLOCATED];
+	    if (children == null)
+		return;
+	    for (Iterator<Entry> i = children.values().iterator();
+		 i.hasNext(); ) {
+		Entry e = i.next();
+		e.total(sampled);
+		for (int m = 0; m < METRIC_NAMES.length; m++)
+		    weights[m] += e.weights[m];
+	    }
+	}
+
+	DiskUsageNode toNode() {
+	    DiskUsageNode node = new DiskUsageNode(name);
+	    node.setColor(color);
+	    double[] metrics = new double[METRIC_NAMES.length];
+	    System.arraycopy(weights, 0, metrics, 0, metrics.length);
+	    node.setWeights(metrics);
+	    if (children != null && children.size() > 0) {
+		DiskUsageNode[] kids = new DiskUsageNode[children.size()];
+		int k = 0;
+		for (Iterator<Entry> i = children.values().iterator();
+		     i.hasNext(); ) {
+		    DiskUsageNode kid = i.next().toNode();
+		    kid.setParent(node);
+		    kids[k++] = kid;
+		}
+		node.setChildren(kids);
+	    }
+	    return node;
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -4,8 +4,10 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.event.*;
+import java.util.ArrayList;
 import java.util.Stack;
 import java.util.EmptyStackException;
+import java.util.concurrent.Callable;
 
 /**
  * Actions associated with a tree map panel.
@@ -16,30 +18,42 @@ import java.util.EmptyStackException;
 class TreeMapActions
     implements ItemListener
 {
-    private final JPopupMenu childrenPopup = new JPopupMenu("Children");
     private final TreeMapFactory factory;
     private final TreeMapComponent comp;
     private final Stack<TreeMapNode> roots =
 	new Stack<TreeMapNode>(); // Stack of roots
     private TreeMapNode root;	// Root of the tree being displayed
     private TreeMapNode base;	// Original tree given by setRoot
-    private Thread t;
+    private final TreeMapTasks tasks;
+    private final TreeMapChildren children;
+    private boolean refreshing;	// Is the running task a refresh?
 
     TreeMapActions(ActionMap am, TreeMapFactory factory,
 		   TreeMapComponent comp) {
 	this.factory = factory;
 	this.comp = comp;
-	comp.add(childrenPopup);
 	comp.addItemListener(this);
 	base = root = comp.getRootNode();
+	tasks = new TreeMapTasks(new TreeMapTasks.Client() {
+		public void taskProgress(String message) {
+		    TreeMapActions.this.comp.showStatus(message);
+		}
+
+		public void taskDone(TreeMapNode tree, Throwable thrown) {
+		    done(tree, thrown);
+		}
+	    });
 	initMessages();
 	initActions(am);
+	children = new TreeMapChildren(maxRows, new TreeMapChildren.Chooser() {
+		public void choose(TreeMapNode node) {
+		    changeRoot(node);
+		}
+	    });
     }
 
     // Load messages
 
-    private final static String SHOW_MORE
-	= "treemap-show-more";
     private final static String ACTIVITY_RUNNING_MESSAGE
 	= "treemap-activity-running";
     private final static String ACTIVITY_STARTED_MESSAGE
@@ -59,7 +73,6 @@ class TreeMapActions
 
     private final static String MISSING_MESSAGE
 	= "internal error: message missing from resources";
-    private String showMore;
     private String activityRunningMessage;
     private String activityStartedMessage;
     private String activityFinishedMessage;
@@ -74,7 +87,6 @@ class TreeMapActions
     }
 
     private void initMessages() {
-	showMore = initMessage(SHOW_MORE);
 	activityRunningMessage = initMessage(ACTIVITY_RUNNING_MESSAGE);
 	activityStartedMessage = initMessage(ACTIVITY_STARTED_MESSAGE);
 	activityFinishedMessage = initMessage(ACTIVITY_FINISHED_MESSAGE);
@@ -120,6 +132,13 @@ class TreeMapActions
 		}
 	    };
 
+    private final TreeMapAction refreshAction
+	= new TreeMapAction(TreeMapPanel.REFRESH_ACTION) {
+		public void actionPerformed(ActionEvent e) {
+		    refresh();
+		}
+	    };
+
     private final TreeMapAction stopAction
 	= new TreeMapAction(TreeMapPanel.STOP_ACTION) {
 		public void actionPerformed(ActionEvent e) {
@@ -186,6 +205,7 @@ class TreeMapActions
 
     private void initActions(ActionMap am) {
 	goAction.putInMap(am);
+	refreshAction.putInMap(am);
 	stopAction.putInMap(am);
 	showChildrenAction.putInMap(am);
 	setRootAction.putInMap(am);
@@ -196,6 +216,7 @@ class TreeMapActions
 	if (factory == null) {
 	    goAction.setEnabled(false);
 	}
+	refreshAction.setEnabled(factory instanceof TreeMapRefreshFactory);
 	stopAction.setEnabled(false);
 	showChildrenAction.setEnabled(false);
 	setRootAction.setEnabled(false);
@@ -223,98 +244,147 @@ class TreeMapActions
     }
 
     private void showChildren() {
-	childrenPopup.removeAll();	
 	TreeMapNode selected = comp.getSelected();
-	if (selected == null)
+	if (selected == null || selected.getChildCount() <= 0)
 	    return;
-	int childCount = selected.getChildCount();
-	if (childCount <= 0)
-	    return;
-	JComponent menu = childrenPopup;
-	int i = 0;
-	for (;;) {
-	    int n = Math.min(childCount, i + maxRows);
-	    while (i < n)
-		menu.add(makeShowChildrenItem(selected.getChildAt(i++)));
-	    if (i == childCount)
-		break;
-	    JMenu more = new JMenu(showMore);
-	    menu.add(more);
-	    menu = more;
-	}
-	childrenPopup.show(comp, showX, showY);
+	children.show(comp, showX, showY, selected, comp.getMetric());
     }
-	
-    private JMenuItem makeShowChildrenItem(final TreeMapNode node) {
-	String label = node.getLabel();
-	JMenuItem mi = new JMenuItem(label == null ? "" : label);
-	mi.addActionListener(new ActionListener() {
-		public void actionPerformed(ActionEvent e) {
-		    changeRoot(node);
+
+    private void go() {
+	start(false);
+    }
+
+    private void refresh() {
+	if (factory instanceof TreeMapRefreshFactory)
+	    start(true);
+    }
+
+    /**
+     * Refresh the tree periodically, or stop doing so.  When no tree
+     * is being displayed, the first refresh starts at once.
+     * @param seconds time between refreshes, or zero to stop
+     */
+    void setRefreshInterval(int seconds) {
+	Runnable action = new Runnable() {
+		public void run() {
+		    if (!tasks.isRunning())
+			refresh();
 		}
-	    });
-	return mi;
+	    };
+	long delay = hasTree() ? seconds : 0;
+	tasks.schedule(action, delay, seconds);
     }
 
-    private void go() {
+    /**
+     * Is a tree from the factory or from setRoot being displayed?
+     * The component shows an empty tree in place of no tree.
+     */
+    private boolean hasTree() {
+	return base != null && !(base instanceof EmptyTree);
+    }
+
+    private void start(final boolean refresh) {
 	if (factory == null)
 	    return;
-	if (t != null && t.isAlive()) {
+	Callable<TreeMapNode> task = new Callable<TreeMapNode>() {
+		public TreeMapNode call() {
+		    if (refresh)
+			return ((TreeMapRefreshFactory)factory).refreshTree();
+		    else
+			return factory.createTree();
+		}
+	    };
+	if (!tasks.start(task)) {
 	    comp.showStatus(activityRunningMessage);
 	    return;
 	}
+	refreshing = refresh;
 	goAction.setEnabled(false);
+	refreshAction.setEnabled(false);
 	stopAction.setEnabled(true);
-	t = new Thread(new Runnable() {
-		public void run() {
-		    TreeMapNode tree = null;
-		    String msg;
-		    try {
-			tree = factory.createTree();
-			if (tree != null)
-			    msg = activityFinishedMessage;
-			else
-			    msg = activityAbortedMessage;
-		    }
-		    catch (Throwable thr) {
-			msg = activityCrashedMessage + ": " + thr.getMessage();
-		    }
-		    invokeDone(tree, msg);
-		}
-	    });
 	comp.showStatus(activityStartedMessage);
-	t.start();
-    }
-
-    private void invokeDone(final TreeMapNode node, final String msg) {
-	SwingUtilities.invokeLater(new Runnable() {
-		public void run() {
-		    done(node, msg);
-		}
-	    });
     }
 
-    private void done(TreeMapNode node, String msg) {
-	comp.showStatus(msg);
+    private void done(TreeMapNode node, Throwable thrown) {
+	if (thrown != null)
+	    comp.showStatus(activityCrashedMessage + ": "
+			    + thrown.getMessage());
+	else if (node != null)
+	    comp.showStatus(activityFinishedMessage);
+	else
+	    comp.showStatus(activityAbortedMessage);
 	if (node != null) {
-	    setRoot(node);
-	    comp.setRoot(node);
+	    if (refreshing && hasTree())
+		replaceTree(node);
+	    else {
+		setRoot(node);
+		comp.setRoot(node);
+	    }
 	}
 	goAction.setEnabled(true);
+	refreshAction.setEnabled(factory instanceof TreeMapRefreshFactory);
 	stopAction.setEnabled(false);
     }
 
     private void stop() {
-	if (t == null || !t.isAlive()) {
-	    t = null;
+	if (tasks.cancel())
+	    comp.showStatus(activityInterruptedMessage);
+	else {
 	    comp.showStatus(activityNotThereMessage);
 	    goAction.setEnabled(true);
+	    refreshAction.setEnabled(factory instanceof TreeMapRefreshFactory);
 	    stopAction.setEnabled(false);
 	}
-	else {
-	    comp.showStatus(activityInterruptedMessage);
-	    t.interrupt();
+    }
+
+    /**
+     * Replace the tree being displayed with a fresh copy, keeping
+     * the zoom root and the stack of roots.  Nodes are matched by
+     * the labels on their path from the base of the tree.  A node
+     * that is gone is replaced by its deepest ancestor that remains.
+     */
+    private void replaceTree(TreeMapNode tree) {
+	TreeMapNode[] old = roots.toArray(new TreeMapNode[roots.size()]);
+	roots.clear();
+	for (int i = 0; i < old.length; i++)
+	    roots.push(translate(old[i], tree));
+	root = translate(root, tree);
+	base = tree;
+	makeParentRootAction.setEnabled(root.getParent() != null);
+	popRootStackAction.setEnabled(!roots.empty());
+	restoreRootAction.setEnabled(root != base);
+	comp.setRoot(root);
+    }
+
+    /**
+     * Find the node in a fresh tree that corresponds to a node in the
+     * tree being displayed.
+     */
+    private TreeMapNode translate(TreeMapNode node, TreeMapNode tree) {
+	ArrayList<String> path = new ArrayList<String>();
+	for (; node != null && node != base; node = node.getParent())
+	    path.add(node.getLabel());
+	if (node == null)	// not within the base tree
+	    return tree;
+	TreeMapNode result = tree;
+	for (int i = path.size() - 1; i >= 0; i--) {
+	    TreeMapNode child = findChild(result, path.get(i));
+	    if (child == null)
+		break;
+	    result = child;
+	}
+	return result;
+    }
+
+    private static TreeMapNode findChild(TreeMapNode node, String label) {
+	int n = node.getChildCount();
+	for (int i = 0; i < n; i++) {
+	    TreeMapNode child = node.getChildAt(i);
+	    String l = child.getLabel();
+	    if (l == null ? label == null : l.equals(label))
+		return child;
 	}
+	return null;
     }
 
     private void changeRoot(TreeMapNode node) {
@@ -0,0 +1,60 @@
+package org.mitre.treemap;
+
+/**
+ * A TreeMapBulkNode is a tree map node that hands out its children
+ * and their weights in bulk.  The layout uses these methods instead
+ * of calling getChildAt and getWeight once per child, which matters
+ * for nodes with millions of children.  Nodes that do not implement
+ * this interface are read one child at a time.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public interface TreeMapBulkNode
+    extends TreeMapNode
+{
+    /**
+     * Copy a range of children into an array.
+     * @param start index of the first child copied
+     * @param dest array receiving the children
+     * @param offset position in dest of the first child
+     * @param length number of children copied
+     */
+    void getChildren(int start, TreeMapNode[] dest, int offset, int length);
+
+    /**
+     * Copy the weights of a range of children into an array.
+     * @param start index of the first child whose weight is copied
+     * @param dest array receiving the weights
+     * @param offset position in dest of the first weight
+     * @param length number of weights copied
+     */
+    void getChildWeights(int start, float[] dest, int offset, int length);
+
+    /**
+     * Get the sum of the weights of the children, computed when
+     * the children were set.
+     * @return the total weight of the children
+     */
+    double getChildWeightTotal();
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
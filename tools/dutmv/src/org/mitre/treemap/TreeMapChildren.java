@@ -0,0 +1,390 @@
+package org.mitre.treemap;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import javax.swing.*;
+import javax.swing.event.*;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * A popup that lists the children of a node in a table.  The table
+ * model reads children from the node only as rows are drawn, so the
+ * popup opens at once however many children there are.  Clicking a
+ * column heading sorts by name or weight, and typing in the field
+ * above the table shows only the children whose names contain the
+ * text.  Clicking a row, or pressing enter, chooses a child.  The
+ * popup lets go of the node when it closes, however it is closed.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapChildren
+    extends JPopupMenu
+{
+    /**
+     * A receiver of the child chosen.
+     */
+    interface Chooser
+    {
+	void choose(TreeMapNode node);
+    }
+
+    private final static String NAME_COLUMN
+	= "treemap-show-children-name-column";
+    private final static String WEIGHT_COLUMN
+	= "treemap-show-children-weight-column";
+    private final static int NAME_WIDTH = 300;
+    private final static int WEIGHT_WIDTH = 100;
+
+    private final Chooser chooser;
+    private final ChildModel model = new ChildModel();
+    private final JTable table = new JTable(model);
+    private final JTextField filter = new JTextField();
+
+    /**
+     * Create a popup for children.
+     * @param rows number of rows visible at once
+     * @param chooser receiver of the child chosen
+     */
+    TreeMapChildren(int rows, Chooser chooser) {
+	super("Children");
+	this.chooser = chooser;
+	setLayout(new BorderLayout());
+	table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+	table.setFillsViewportHeight(true);
+	table.getTableHeader().setReorderingAllowed(false);
+	table.getColumnModel().getColumn(0).setPreferredWidth(NAME_WIDTH);
+	table.getColumnModel().getColumn(1).setPreferredWidth(WEIGHT_WIDTH);
+	Dimension size = new Dimension(NAME_WIDTH + WEIGHT_WIDTH,
+				       rows * table.getRowHeight());
+	table.setPreferredScrollableViewportSize(size);
+	table.getTableHeader().addMouseListener(new MouseAdapter() {
+		public void mouseClicked(MouseEvent e) {
+		    int column = table.columnAtPoint(e.getPoint());
+		    if (column >= 0) {
+			model.sort(column);
+			selectFirst();
+		    }
+		}
+	    });
+	table.addMouseListener(new MouseAdapter() {
+		public void mouseClicked(MouseEvent e) {
+		    choose(table.rowAtPoint(e.getPoint()));
+		}
+	    });
+	filter.getDocument().addDocumentListener(new DocumentListener() {
+		public void insertUpdate(DocumentEvent e) {
+		    update();
+		}
+
+		public void removeUpdate(DocumentEvent e) {
+		    update();
+		}
+
+		public void changedUpdate(DocumentEvent e) {
+		    update();
+		}
+	    });
+	filter.addKeyListener(new KeyAdapter() {
+		public void keyPressed(KeyEvent e) {
+		    switch (e.getKeyCode()) {
+		    case KeyEvent.VK_ENTER:
+			choose(table.getSelectedRow());
+			break;
+		    case KeyEvent.VK_UP:
+			move(-1);
+			break;
+		    case KeyEvent.VK_DOWN:
+			move(1);
+			break;
+		    case KeyEvent.VK_PAGE_UP:
+			move(-table.getVisibleRect().height
+			     / table.getRowHeight());
+			break;
+		    case KeyEvent.VK_PAGE_DOWN:
+			move(table.getVisibleRect().height
+			     / table.getRowHeight());
+			break;
+		    default:
+			return;
+		    }
+		    e.consume();
+		}
+	    });
+	addPopupMenuListener(new PopupMenuListener() {
+		public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+		}
+
+		public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+		    model.setParent(null); // let go of the tree
+		}
+
+		public void popupMenuCanceled(PopupMenuEvent e) {
+		}
+	    });
+	add(filter, BorderLayout.NORTH);
+	add(new JScrollPane(table), BorderLayout.CENTER);
+    }
+
+    /**
+     * Show the children of a node with their weights under a metric.
+     */
+    void show(Component invoker, int x, int y, TreeMapNode parent,
+	      int metric) {
+	model.metric = metric;
+	model.setParent(parent);
+	filter.setText("");
+	selectFirst();
+	show(invoker, x, y);
+	filter.requestFocusInWindow();
+    }
+
+    private void update() {
+	model.filter(filter.getText());
+	selectFirst();
+    }
+
+    private void selectFirst() {
+	if (model.getRowCount() > 0) {
+	    table.setRowSelectionInterval(0, 0);
+	    table.scrollRectToVisible(table.getCellRect(0, 0, true));
+	}
+    }
+
+    private void move(int delta) {
+	int n = model.getRowCount();
+	if (n <= 0)
+	    return;
+	int row = table.getSelectedRow() + delta;
+	row = Math.max(0, Math.min(n - 1, row));
+	table.setRowSelectionInterval(row, row);
+	table.scrollRectToVisible(table.getCellRect(row, 0, true));
+    }
+
+    private void choose(int row) {
+	if (row < 0 || row >= model.getRowCount())
+	    return;
+	TreeMapNode node = model.getChild(row);
+	setVisible(false);
+	chooser.choose(node);
+    }
+
+    /**
+     * A table model over the children of a node.  Rows map to
+     * children through an optional sort order and an optional
+     * filter, and cells are read from the node when asked for.
+     */
+    private static class ChildModel
+	extends AbstractTableModel
+    {
+	private final String[] columns = {
+	    TreeMapResources.getResourceString(NAME_COLUMN, "Name"),
+	    TreeMapResources.getResourceString(WEIGHT_COLUMN, "Weight")
+	};
+
+	private TreeMapNode parent;
+	int metric;		// metric giving the weights
+	private int count;	// number of children
+	private int[] order;	// children in sorted order or null
+	private int[] rows;	// children that pass the filter or null
+	private int sortColumn = -1;
+	private String pattern = "";
+
+	void setParent(TreeMapNode parent) {
+	    this.parent = parent;
+	    count = parent == null ? 0 : parent.getChildCount();
+	    order = rows = null;
+	    sortColumn = -1;
+	    pattern = "";
+	    fireTableDataChanged();
+	}
+
+	TreeMapNode getChild(int row) {
+	    return parent.getChildAt(index(row));
+	}
+
+	private int index(int row) {
+	    if (rows != null)
+		return rows[row];
+	    else if (order != null)
+		return order[row];
+	    else
+		return row;
+	}
+
+	public int getRowCount() {
+	    return rows != null ? rows.length : count;
+	}
+
+	public int getColumnCount() {
+	    return columns.length;
+	}
+
+	public String getColumnName(int column) {
+	    return columns[column];
+	}
+
+	public Class<?> getColumnClass(int column) {
+	    return column == 0 ? String.class : Float.class;
+	}
+
+	public Object getValueAt(int row, int column) {
+	    TreeMapNode child = getChild(row);
+	    if (column == 0)
+		return child.getLabel();
+	    else
+		return Float.valueOf(weight(child));
+	}
+
+	/**
+	 * Sort by a column, names ascending and weights descending.
+	 * Sorting again by the same column reverses the order.
+	 */
+	void sort(int column) {
+	    if (parent == null)
+		return;
+	    if (column == sortColumn)
+		reverse(order);
+	    else {
+		sortColumn = column;
+		order = column == 0 ? sortByName() : sortByWeight();
+	    }
+	    rows = null;
+	    filter(pattern);
+	}
+
+	private int[] sortByName() {
+	    final String[] labels = new String[count];
+	    Integer[] boxed = new Integer[count];
+	    for (int i = 0; i < count; i++) {
+		String label = parent.getChildAt(i).getLabel();
+		labels[i] = label == null ? "" : label.toLowerCase();
+		boxed[i] = Integer.valueOf(i);
+	    }
+	    Arrays.sort(boxed, new Comparator<Integer>() {
+		    public int compare(Integer a, Integer b) {
+			return labels[a.intValue()]
+			    .compareTo(labels[b.intValue()]);
+		    }
+		});
+	    int[] result = new int[count];
+	    for (int i = 0; i < count; i++)
+		result[i] = boxed[i].intValue();
+	    return result;
+	}
+
+	/**
+	 * Sort by weight, heaviest first.  The bits of a non-negative
+	 * float order like the float, so each key packs a weight over
+	 * an index and the keys are sorted as longs.
+	 */
+	private int[] sortByWeight() {
+	    float[] weights = new float[count];
+	    if (metric == 0 && parent instanceof TreeMapBulkNode) {
+		TreeMapBulkNode bulk = (TreeMapBulkNode)parent;
+		bulk.getChildWeights(0, weights, 0, count);
+	    }
+	    else
+		for (int i = 0; i < count; i++)
+		    weights[i] = weight(parent.getChildAt(i));
+	    long[] keys = new long[count];
+	    for (int i = 0; i < count; i++) {
+		float w = Math.max(weights[i], 0.0f);
+		keys[i] = (long)Float.floatToIntBits(w) << 32 | i;
+	    }
+	    Arrays.sort(keys);
+	    int[] result = new int[count];
+	    for (int i = 0; i < count; i++)
+		result[count - 1 - i] = (int)keys[i];
+	    return result;
+	}
+
+	private float weight(TreeMapNode node) {
+	    if (metric != 0 && node instanceof TreeMapMetricNode)
+		return ((TreeMapMetricNode)node).getWeight(metric);
+	    return node.getWeight();
+	}
+
+	private static void reverse(int[] a) {
+	    for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	    }
+	}
+
+	/**
+	 * Show only the children whose labels contain the text,
+	 * ignoring case.  When the text contains the previous text, as
+	 * it does while typing, only the rows already shown are
+	 * searched.
+	 */
+	void filter(String text) {
+	    if (parent == null || text.length() == 0)
+		rows = null;
+	    else if (rows != null && contains(text, pattern))
+		rows = search(rows, rows.length, text);
+	    else if (order != null)
+		rows = search(order, count, text);
+	    else
+		rows = search(null, count, text);
+	    pattern = text;
+	    fireTableDataChanged();
+	}
+
+	/**
+	 * Find the children whose labels contain the text among the
+	 * first n children in a list, or among the first n children
+	 * of the parent when the list is null.
+	 */
+	private int[] search(int[] list, int n, String text) {
+	    int[] found = new int[n];
+	    int m = 0;
+	    for (int i = 0; i < n; i++) {
+		int j = list != null ? list[i] : i;
+		if (contains(parent.getChildAt(j).getLabel(), text))
+		    found[m++] = j;
+	    }
+	    return Arrays.copyOf(found, m);
+	}
+
+	private static boolean contains(String label, String text) {
+	    if (label == null)
+		return false;
+	    int n = text.length();
+	    if (n == 0)
+		return true;
+	    char lower = Character.toLowerCase(text.charAt(0));
+	    char upper = Character.toUpperCase(text.charAt(0));
+	    for (int i = 0; i + n <= label.length(); i++) {
+		char c = label.charAt(i);
+		if ((c == lower || c == upper)
+		    && label.regionMatches(true, i, text, 0, n))
+		    return true;
+	    }
+	    return false;
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -1,8 +1,11 @@
 package org.mitre.treemap;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 
 /**
@@ -11,6 +14,15 @@ import javax.swing.*;
  * node's weight.  See Ben Shneiderman, "Tree Visualization with
  * Tree-Maps: A 2-D Space-filling Approach", ACM Transactions on
  * Graphics (TOG), Vol. 11, No. 1, Pages 92-99, Jan., 1992.
+ * <p>
+ * Layout is computed by a background worker, which also renders the
+ * layout into an offscreen image with a tiled renderer.  Painting
+ * copies from the image, and the selection and highlight are drawn
+ * over it, so changing them repaints only the rectangles involved.
+ * The last good image stays on the screen, scaled to fit, until the
+ * new one is ready.  Two layout buffers are kept, one for display
+ * and one for the worker, so layouts and images are reused from one
+ * layout to the next.
  *
  * @version October 2001
  * @author John D. Ramsdell
@@ -19,15 +31,27 @@ class TreeMapComponent
     extends JComponent
     implements ItemSelectable
 {
-    private int width;
-    private int height;
+    private final static String RESIZE_DELAY = "treemap-resize-delay";
+    private final static int DEFAULT_RESIZE_DELAY = 200; // milliseconds
+    final static String LOD_PIXELS = "treemap-lod-pixels";
+    final static int DEFAULT_LOD_PIXELS = 4;
+    final static String LOD_DEPTH = "treemap-lod-depth";
+    final static int DEFAULT_LOD_DEPTH = 0; // no limit
 
     private final JLabel status; // place for messages
     private TreeMapNode node;	// root node for display
-    private TreeMapRectangle rect; // wrapper for the root node
+    private LayoutBuffer front;	// layout on display
+    private LayoutBuffer spare;	// layout buffer available to the worker
     private boolean horizontal;
     private int hgap;
     private int vgap;
+    private int lodPixels;	// level of detail thresholds
+    private int lodDepth;
+    private int metric;		// metric giving the weights
+
+    private final javax.swing.Timer resizeTimer; // coalesces resizes
+    private SwingWorker<LayoutBuffer, Object> worker;
+    private boolean pending;	// layout requested while worker busy
 
     TreeMapComponent(JLabel status, TreeMapNode node,
 		     boolean horizontal, int hgap, int vgap) {
@@ -35,34 +59,237 @@ class TreeMapComponent
 	this.horizontal = horizontal;
 	this.hgap = hgap;
 	this.vgap = vgap;
+	int delay = TreeMapResources.getResourceInt(RESIZE_DELAY,
+						    DEFAULT_RESIZE_DELAY);
+	resizeTimer = new javax.swing.Timer(delay, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+		    layoutTree();
+		}
+	    });
+	resizeTimer.setRepeats(false);
+	lodPixels = TreeMapResources.getResourceInt(LOD_PIXELS,
+						    DEFAULT_LOD_PIXELS);
+	lodDepth = TreeMapResources.getResourceInt(LOD_DEPTH,
+						   DEFAULT_LOD_DEPTH);
+	addComponentListener(new ComponentAdapter() {
+		public void componentResized(ComponentEvent e) {
+		    resizeTimer.restart();
+		}
+	    });
 	setNode(node);
 	addMouseListener(new TreeMapMouseListener(this));
     }
 
     /**
-     * Paint component by painting the rectangle for the root node.
+     * A layout together with its rendered image.
+     */
+    private static class LayoutBuffer
+    {
+	final TreeMapLayout layout;
+	BufferedImage image;
+	int width;		// component size used for the layout
+	int height;
+
+	LayoutBuffer(TreeMapLayout layout) {
+	    this.layout = layout;
+	}
+
+	/**
+	 * Lay out the tree and render it into the image.  The image
+	 * has one pixel per device pixel, so it is larger than the
+	 * component when the display is scaled.
+	 */
+	void render(TreeMapNode root, int width, int height,
+		    int hgap, Font font, int textHeight, Color background,
+		    double sx, double sy, Map<?, ?> hints,
+		    int lodPixels, int lodDepth, int metric) {
+	    this.width = width;
+	    this.height = height;
+	    layout.setLevelOfDetail(lodPixels, lodDepth);
+	    layout.setMetric(metric);
+	    layout.layout(root, hgap, 0, width - 2 * hgap, height,
+			  textHeight);
+	    int w = (int)Math.ceil(width * sx);
+	    int h = (int)Math.ceil(height * sy);
+	    if (image == null
+		|| image.getWidth() != w || image.getHeight() != h)
+		image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+	    TreeMapRenderer.render(layout, image, sx, sy,
+				   font, background, hints);
+	}
+    }
+
+    /**
+     * Paint component by copying the rendered layout within the clip
+     * and drawing the selection and highlight over it.  When the
+     * layout is out of date, the last good one is scaled to the size
+     * of the component.
      */
     public void paintComponent(Graphics g) {
-	Color background = getBackground();
-	g.setColor(background);
 	Dimension d = getSize();
-	if (d.width != width || d.height != height) {
-	    width = d.width;
-	    height = d.height;
-	    // recompute bounds on size change
-	    rect.setBounds(hgap, 0, width - 2 * hgap, height,
-			   g.getFontMetrics().getHeight());
+	if (front == null || front.width <= 0 || front.height <= 0) {
+	    g.setColor(getBackground());
+	    g.fillRect(0, 0, d.width, d.height);
+	    return;
 	}
-	g.setClip(0, 0, width, height);
-	g.fillRect(0, 0, width, height);
-	rect.paint(g, background);
+	g.drawImage(front.image, 0, 0, d.width, d.height, null);
+	if (selected < 0 && highlight < 0)
+	    return;
+	Graphics2D g2 = (Graphics2D)g.create();
+	try {
+	    if (d.width != front.width || d.height != front.height)
+		g2.scale((double)d.width / front.width,
+			 (double)d.height / front.height);
+	    front.layout.outline(g2, selected, Color.red);
+	    front.layout.outline(g2, highlight, Color.red);
+	}
+	finally {
+	    g2.dispose();
+	}
+    }
+
+    /**
+     * Repaint the part of the component covered by a rectangle.
+     */
+    private void repaintRectangle(int index) {
+	if (front == null || front.width <= 0 || front.height <= 0)
+	    return;
+	Rectangle r = front.layout.getBounds(index);
+	if (r == null)
+	    return;
+	double sx = (double)getWidth() / front.width;
+	double sy = (double)getHeight() / front.height;
+	int x0 = (int)Math.floor(r.x * sx);
+	int y0 = (int)Math.floor(r.y * sy);
+	int x1 = (int)Math.ceil((r.x + r.width) * sx);
+	int y1 = (int)Math.ceil((r.y + r.height) * sy);
+	repaint(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Start a background layout of the root node at the current size.
+     * Requests made while a layout is running are coalesced into one
+     * layout that starts when the running one finishes.
+     * This must be called in the AWT event thread.
+     */
+    private void layoutTree() {
+	if (worker != null) {
+	    pending = true;
+	    return;
+	}
+	final int width = getWidth();
+	final int height = getHeight();
+	if (width <= 0 || height <= 0)
+	    return;
+	final TreeMapNode root = node;
+	final Font font = getFont();
+	final int textHeight = getFontMetrics(font).getHeight();
+	final Color background = getBackground();
+	GraphicsConfiguration gc = getGraphicsConfiguration();
+	AffineTransform t = gc == null ? new AffineTransform()
+	    : gc.getDefaultTransform();
+	final double sx = t.getScaleX();
+	final double sy = t.getScaleY();
+	final Map<?, ?> hints = (Map<?, ?>)Toolkit.getDefaultToolkit()
+	    .getDesktopProperty("awt.font.desktophints");
+	final int lodPixels = this.lodPixels;
+	final int lodDepth = this.lodDepth;
+	final int metric = this.metric;
+	final LayoutBuffer target = spare != null ? spare
+	    : new LayoutBuffer(new TreeMapLayout(horizontal, hgap, vgap));
+	spare = null;
+	worker = new SwingWorker<LayoutBuffer, Object>() {
+		protected LayoutBuffer doInBackground() {
+		    target.render(root, width, height, hgap, font,
+				  textHeight, background, sx, sy, hints,
+				  lodPixels, lodDepth, metric);
+		    return target;
+		}
+
+		protected void done() {
+		    worker = null;
+		    spare = target;
+		    try {
+			if (root == node)
+			    swapLayout(get());
+		    }
+		    catch (InterruptedException ie) {
+		    }
+		    catch (ExecutionException ee) {
+			showStatus(ee.getCause().toString());
+		    }
+		    if (pending || root != node
+			|| width != getWidth() || height != getHeight()) {
+			pending = false;
+			layoutTree();
+		    }
+		}
+	    };
+	worker.execute();
+    }
+
+    /**
+     * Install a finished layout, carrying over the selection.  The
+     * layout it replaces becomes the spare.
+     */
+    private void swapLayout(LayoutBuffer b) {
+	spare = front;
+	front = b;
+	selected = b.layout.indexOf(selectedNode);
+	highlight = -1;
+	repaint();
+    }
+
+    /**
+     * Set the level of detail thresholds and lay out the tree again.
+     * This must be called in the AWT event thread.
+     */
+    void setLevelOfDetail(int pixels, int depth) {
+	lodPixels = pixels;
+	lodDepth = depth;
+	layoutTree();
+    }
+
+    /**
+     * Set the metric giving the weights and lay out the tree again.
+     * This must be called in the AWT event thread.
+     */
+    void setMetric(int metric) {
+	if (this.metric == metric)
+	    return;
+	this.metric = metric;
+	layoutTree();
+    }
+
+    int getMetric() {
+	return metric;
     }
 
     /**
-     * Get the root rectangle.
+     * Returns the index of the inner most rectangle at the coordinate
+     * x, y of this component, or -1 when no layout is available.
      */
-    TreeMapRectangle getRootRectangle() {
-	return rect;
+    int getRectangleAt(int x, int y) {
+	if (front == null || front.width <= 0 || front.height <= 0)
+	    return -1;
+	int w = getWidth();
+	int h = getHeight();
+	if (w != front.width && w > 0)
+	    x = (int)((long)x * front.width / w);
+	if (h != front.height && h > 0)
+	    y = (int)((long)y * front.height / h);
+	return front.layout.getRectangleAt(x, y);
+    }
+
+    /**
+     * Get the node of a rectangle in the layout on display.
+     * @return the node or null on bad index
+     */
+    TreeMapNode getNode(int index) {
+	if (front == null)
+	    return null;
+	else
+	    return front.layout.getNode(index);
     }
 
     /**
@@ -78,18 +305,29 @@ class TreeMapComponent
      */
     void setRoot(TreeMapNode node) {
 	setNode(node);
-	repaint();
+	layoutTree();
     }
 
     private void setNode(TreeMapNode node) {
-	setSelected(null);
+	setSelected(-1);
 	if (node == null)
 	    node = new EmptyTree("Nil");
 	this.node = node;
-	rect = new TreeMapRectangle(node, horizontal, hgap, vgap);
-	width = height = 0;
     }	
 
+    /**
+     * Receive reported problems while on the screen.
+     */
+    public void addNotify() {
+	super.addNotify();
+	TreeMapProgress.show(this);
+    }
+
+    public void removeNotify() {
+	TreeMapProgress.hide(this);
+	super.removeNotify();
+    }
+
     /**
      * Show a message in the status line.  If there is no message,
      * show the selected node.  The message must not be the empty
@@ -99,11 +337,11 @@ class TreeMapComponent
     void showStatus(String msg) {
 	if (msg != null && msg.length() > 0)
 	    status.setText(msg);
-	else if (selected == null) {
+	else if (selectedNode == null) {
 	    status.setText(" ");
 	}
 	else {
-	    String label = selected.getNode().getLabel();
+	    String label = selectedNode.getLabel();
 	    if (label != null && label.length() > 0)
 		status.setText(label);
 	    else
@@ -111,35 +349,53 @@ class TreeMapComponent
 	}
     }
 
-    private TreeMapRectangle selected;
+    private TreeMapNode selectedNode;
+    private int selected = -1;	// index of the selected node's rectangle
+    private int highlight = -1;	// index of the highlighted rectangle
 
     /**
      * Set the selected rectangle.  The mouse listener calls this.
      */
-    void setSelected(TreeMapRectangle selected) {
-	if (this.selected == selected)
+    void setSelected(int index) {
+	TreeMapNode node = getNode(index);
+	if (node == null)
+	    index = -1;
+	if (selectedNode == node)
 	    return;
-	if (this.selected != null) {
-	    this.selected.setSelected(false);
-	    fireItemEvent(this.selected, false);
-	}
-	this.selected = selected;
-	if (selected != null) {
-	    selected.setSelected(true);
-	    fireItemEvent(selected, true);
-	}
+	if (selectedNode != null)
+	    fireItemEvent(selectedNode, false);
+	repaintRectangle(selected);
+	selectedNode = node;
+	selected = index;
+	repaintRectangle(selected);
+	if (node != null)
+	    fireItemEvent(node, true);
 	showStatus(null);
-	repaint();
     }
 
     /**
      * Get the selected node.
      */
     TreeMapNode getSelected() {
-	if (selected == null)
-	    return null;
-	else
-	    return selected.getNode();
+	return selectedNode;
+    }
+
+    /**
+     * Get the highlighted rectangle.
+     */
+    int getHighlight() {
+	return highlight;
+    }
+
+    /**
+     * Set the highlighted rectangle.  The mouse listener calls this.
+     */
+    void setHighlight(int index) {
+	if (highlight == index)
+	    return;
+	repaintRectangle(highlight);
+	highlight = index;
+	repaintRectangle(highlight);
     }
 
     /**
@@ -147,10 +403,10 @@ class TreeMapComponent
      * ItemSelectable.
      */
     public Object[] getSelectedObjects() {
-	if (selected == null)
+	if (selectedNode == null)
 	    return null;
 	else
-	    return new TreeMapNode[] { selected.getNode() };
+	    return new TreeMapNode[] { selectedNode };
     }
 
     private Vector<ItemListener> itemListeners =
@@ -170,10 +426,10 @@ class TreeMapComponent
 	itemListeners.removeElement(il);
     }
 
-    private void fireItemEvent(TreeMapRectangle rect, boolean selected) {
+    private void fireItemEvent(TreeMapNode node, boolean selected) {
 	int stateChange = selected ? ItemEvent.SELECTED : ItemEvent.DESELECTED;
 	ItemEvent e = new ItemEvent(this, ItemEvent.ITEM_STATE_CHANGED,
-				    rect.getNode(), stateChange);
+				    node, stateChange);
 	Vector l;
 	synchronized (this) {
 	    l = (Vector)itemListeners.clone();
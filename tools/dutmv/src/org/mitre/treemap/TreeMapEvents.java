@@ -0,0 +1,101 @@
+package org.mitre.treemap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of the tree map library, one for
+ * each phase counted by {@link TreeMapStats}.  An event is only
+ * written when a recording that enables it is running.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapEvents
+{
+    private TreeMapEvents() {
+    }
+
+    @Name("org.mitre.treemap.Layout")
+    @Label("Tree Map Layout")
+    @Category("Tree Map")
+    @Description("Rectangles computed for a tree")
+    @StackTrace(false)
+    static class LayoutEvent
+	extends Event
+    {
+	@Label("Nodes")
+	int nodes;
+    }
+
+    @Name("org.mitre.treemap.Paint")
+    @Label("Tree Map Paint")
+    @Category("Tree Map")
+    @Description("A layout, or a tile of it, painted")
+    @StackTrace(false)
+    static class PaintEvent
+	extends Event
+    {
+	@Label("Rectangles")
+	int rectangles;
+
+	@Label("Labels")
+	int labels;
+    }
+
+    @Name("org.mitre.treemap.HitTest")
+    @Label("Tree Map Hit Test")
+    @Category("Tree Map")
+    @Description("The rectangle at a point found")
+    @StackTrace(false)
+    static class HitTestEvent
+	extends Event
+    {
+	@Label("X")
+	int x;
+
+	@Label("Y")
+	int y;
+
+	@Label("Rectangle")
+	int rectangle;
+    }
+
+    @Name("org.mitre.treemap.Scan")
+    @Label("Tree Map Scan")
+    @Category("Tree Map")
+    @Description("A tree created by a factory")
+    static class ScanEvent
+	extends Event
+    {
+	@Label("Source")
+	String source;
+
+	@Label("Entries")
+	long entries;
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
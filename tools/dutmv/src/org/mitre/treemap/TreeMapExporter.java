@@ -0,0 +1,316 @@
+package org.mitre.treemap;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+
+/**
+ * A TreeMapExporter writes a tree map to a PNG or SVG file without
+ * creating any windows, so it can be used in a headless environment.
+ * It uses the same layout and painting as {@link TreeMapPanel} at any
+ * resolution.  A PNG image is rendered and written in bands of rows,
+ * and an SVG document is written as the layout is painted, so memory
+ * use is bounded by the number of visible rectangles rather than by
+ * the size of the image.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public class TreeMapExporter
+{
+    private final static int BAND_HEIGHT = 256;
+
+    private final TreeMapNode root;
+    private final boolean horizontal;
+    private final int hgap;
+    private final int vgap;
+    private Font font = new Font(Font.DIALOG, Font.PLAIN, 12);
+    private Color background = Color.white;
+    private int lodPixels;
+    private int lodDepth;
+    private int metric;
+
+    /**
+     * Create an exporter for a tree.
+     * @param root the root node to be exported
+     * @param horizontal true if top-level layed out horizontally
+     * @param hgap horizontal length in pixels between rectangles
+     * @param vgap vertical length in pixels between rectangles
+     */
+    public TreeMapExporter(TreeMapNode root, boolean horizontal,
+			   int hgap, int vgap) {
+	this.root = root == null ? new EmptyTree("Nil") : root;
+	this.horizontal = horizontal;
+	this.hgap = hgap;
+	this.vgap = vgap;
+	lodPixels = TreeMapResources.getResourceInt(
+	    TreeMapComponent.LOD_PIXELS, TreeMapComponent.DEFAULT_LOD_PIXELS);
+	lodDepth = TreeMapResources.getResourceInt(
+	    TreeMapComponent.LOD_DEPTH, TreeMapComponent.DEFAULT_LOD_DEPTH);
+    }
+
+    /**
+     * Set the font used for labels.
+     * @param font the font
+     */
+    public void setFont(Font font) {
+	this.font = font;
+    }
+
+    /**
+     * Set the color used behind nodes without a color.
+     * @param background the color
+     */
+    public void setBackground(Color background) {
+	this.background = background;
+    }
+
+    /**
+     * Sets the level of detail.
+     * @param pixels pixel threshold
+     * @param depth depth threshold, or zero for no depth limit
+     * @see TreeMapPanel#setLevelOfDetail(int, int)
+     */
+    public void setLevelOfDetail(int pixels, int depth) {
+	lodPixels = pixels;
+	lodDepth = depth;
+    }
+
+    /**
+     * Sets the metric giving the weights of nodes.
+     * @param metric the metric number
+     * @see TreeMapPanel#setMetric(int)
+     */
+    public void setMetric(int metric) {
+	this.metric = metric;
+    }
+
+    /**
+     * Write the tree map to a file.  The format is SVG if the file
+     * name ends with ".svg", and PNG otherwise.
+     * @param file the output file
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @throws IOException on failure to write the file
+     */
+    public void write(File file, int width, int height)
+	throws IOException
+    {
+	if (file.getName().toLowerCase().endsWith(".svg")) {
+	    Writer out = new BufferedWriter(
+		new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+	    try {
+		writeSVG(out, width, height);
+	    }
+	    finally {
+		out.close();
+	    }
+	}
+	else {
+	    OutputStream out =
+		new BufferedOutputStream(new FileOutputStream(file));
+	    try {
+		writePNG(out, width, height);
+	    }
+	    finally {
+		out.close();
+	    }
+	}
+    }
+
+    /**
+     * Write the tree map as a PNG image.
+     * @param out the output stream, which is not closed
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @throws IOException on failure to write the stream
+     */
+    public void writePNG(OutputStream out, int width, int height)
+	throws IOException
+    {
+	RenderingHints hints = getHints();
+	TreeMapLayout layout = layout(width, height, hints);
+	TreeMapPngWriter png = new TreeMapPngWriter(out, width, height);
+	BufferedImage band = new BufferedImage(width,
+					       Math.min(BAND_HEIGHT, height),
+					       BufferedImage.TYPE_INT_RGB);
+	for (int y = 0; y < height; y += band.getHeight()) {
+	    TreeMapRenderer.render(layout, band, 0, y, 1.0, 1.0,
+				   font, background, hints);
+	    png.writeRows(band, Math.min(band.getHeight(), height - y));
+	}
+	png.finish();
+    }
+
+    /**
+     * Write the tree map as an SVG document.
+     * @param out the output writer, which is not closed
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @throws IOException on failure to write the stream
+     */
+    public void writeSVG(Writer out, int width, int height)
+	throws IOException
+    {
+	TreeMapLayout layout = layout(width, height, getHints());
+	out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+	out.write("<svg xmlns=\"http://www.w3.org/2000/svg\"");
+	out.write(" width=\"" + width + "\" height=\"" + height + "\"");
+	out.write(" font-family=\"");
+	out.write(escape(font.getFamily()));
+	out.write("\" font-size=\"" + font.getSize() + "\">\n");
+	out.write("<rect width=\"" + width + "\" height=\"" + height
+		  + "\" fill=\"" + rgb(background) + "\"/>\n");
+	SvgPainter p = new SvgPainter(out, labels(getHints()));
+	layout.paint(new Rectangle(0, 0, width, height), background, p);
+	if (p.exception != null)
+	    throw p.exception;
+	out.write("</svg>\n");
+	out.flush();
+    }
+
+    private RenderingHints getHints() {
+	return new RenderingHints(RenderingHints.KEY_TEXT_ANTIALIASING,
+				  RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    }
+
+    /**
+     * Get the labels for the font, measured with the given hints.
+     */
+    private TreeMapLabels labels(RenderingHints hints) {
+	BufferedImage scratch
+	    = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+	Graphics2D g = scratch.createGraphics();
+	try {
+	    g.addRenderingHints(hints);
+	    return TreeMapLabels.getInstance(font, g.getFontRenderContext());
+	}
+	finally {
+	    g.dispose();
+	}
+    }
+
+    private TreeMapLayout layout(int width, int height,
+				 RenderingHints hints) {
+	BufferedImage scratch
+	    = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+	Graphics2D g = scratch.createGraphics();
+	int textHeight;
+	try {
+	    g.addRenderingHints(hints);
+	    textHeight = g.getFontMetrics(font).getHeight();
+	}
+	finally {
+	    g.dispose();
+	}
+	TreeMapLayout layout = new TreeMapLayout(horizontal, hgap, vgap);
+	layout.setLevelOfDetail(lodPixels, lodDepth);
+	layout.setMetric(metric);
+	layout.layout(root, hgap, 0, width - 2 * hgap, height, textHeight);
+	return layout;
+    }
+
+    /**
+     * A painter that writes SVG elements.  Labels are fitted using
+     * the font's metrics, and clipped by placing them in a nested svg
+     * element the size of the rectangle.
+     */
+    private static class SvgPainter
+	implements TreeMapLayout.Painter
+    {
+	private final Writer out;
+	private final TreeMapLabels labels;
+	IOException exception;	// first exception seen
+
+	SvgPainter(Writer out, TreeMapLabels labels) {
+	    this.out = out;
+	    this.labels = labels;
+	}
+
+	public void fill(int x, int y, int width, int height, Color color) {
+	    write("<rect x=\"" + x + "\" y=\"" + y + "\" width=\"" + width
+		  + "\" height=\"" + height + "\" fill=\"" + rgb(color)
+		  + "\"/>\n");
+	}
+
+	public void outline(int x, int y, int width, int height,
+			    String label, int labelX, int labelY) {
+	    write("<rect x=\"" + (x + 0.5) + "\" y=\"" + (y + 0.5)
+		  + "\" width=\"" + (width - 1) + "\" height=\""
+		  + (height - 1) + "\" fill=\"none\" stroke=\"#000000\"/>\n");
+	    if (label == null || labelY > y + height)
+		return;
+	    label = labels.fitText(label, width - 2 * (labelX - x));
+	    if (label == null)
+		return;
+	    write("<svg x=\"" + x + "\" y=\"" + y + "\" width=\"" + width
+		  + "\" height=\"" + height + "\"><text x=\"" + (labelX - x)
+		  + "\" y=\"" + (labelY - y) + "\">" + escape(label)
+		  + "</text></svg>\n");
+	}
+
+	private void write(String s) {
+	    if (exception != null)
+		return;
+	    try {
+		out.write(s);
+	    }
+	    catch (IOException ioe) {
+		exception = ioe;
+	    }
+	}
+    }
+
+    private static String rgb(Color c) {
+	return String.format("#%06x", c.getRGB() & 0xffffff);
+    }
+
+    /**
+     * Escape text for use in XML, dropping characters XML does not
+     * allow.
+     */
+    private static String escape(String s) {
+	StringBuilder sb = new StringBuilder(s.length());
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    switch (c) {
+	    case '&':
+		sb.append("&amp;");
+		break;
+	    case '<':
+		sb.append("&lt;");
+		break;
+	    case '>':
+		sb.append("&gt;");
+		break;
+	    case '"':
+		sb.append("&quot;");
+		break;
+	    default:
+		if (c >= ' ' || c == '\t')
+		    sb.append(c);
+	    }
+	}
+	return sb.toString();
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,223 @@
+package org.mitre.treemap;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TreeMapLabels fits labels into rectangles.  Each label is measured
+ * once for a font and rendering context, and its glyph vector is kept
+ * for later repaints.  A label that is too wide is truncated with an
+ * ellipsis, and the truncated glyphs are kept too.  A label that
+ * cannot show even one character is skipped.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapLabels
+{
+    // The cache is cleared when it holds more labels than this.
+    private final static int MAX_LABELS = 1 << 16;
+    private final static int MAX_CONTEXTS = 16;
+    private final static String ELLIPSIS = "\u2026";
+
+    private final static ConcurrentHashMap<Key, TreeMapLabels> instances
+	= new ConcurrentHashMap<Key, TreeMapLabels>();
+
+    /**
+     * Get the labels for a font and rendering context.
+     */
+    static TreeMapLabels getInstance(Font font, FontRenderContext frc) {
+	Key key = new Key(font, frc);
+	TreeMapLabels labels = instances.get(key);
+	if (labels == null) {
+	    if (instances.size() >= MAX_CONTEXTS)
+		instances.clear();
+	    labels = new TreeMapLabels(font, frc);
+	    TreeMapLabels old = instances.putIfAbsent(key, labels);
+	    if (old != null)
+		labels = old;
+	}
+	return labels;
+    }
+
+    private static class Key
+    {
+	private final Font font;
+	private final FontRenderContext frc;
+
+	Key(Font font, FontRenderContext frc) {
+	    this.font = font;
+	    this.frc = frc;
+	}
+
+	public boolean equals(Object o) {
+	    if (!(o instanceof Key))
+		return false;
+	    Key k = (Key)o;
+	    return font.equals(k.font) && frc.equals(k.frc);
+	}
+
+	public int hashCode() {
+	    return 31 * font.hashCode() + frc.hashCode();
+	}
+    }
+
+    /**
+     * A measured label.
+     */
+    private static class Label
+    {
+	final String text;
+	final GlyphVector glyphs;
+	final float width;
+	// Advance of each prefix, or null if glyphs do not map one
+	// to one onto characters.
+	final float[] advances;
+	volatile Fitted fitted;	// most recent truncation
+
+	Label(String text, GlyphVector glyphs, float[] advances) {
+	    this.text = text;
+	    this.glyphs = glyphs;
+	    this.width = (float)glyphs.getLogicalBounds().getWidth();
+	    this.advances = advances;
+	}
+    }
+
+    /**
+     * A truncated label.
+     */
+    private static class Fitted
+    {
+	final int length;	// characters kept
+	final String text;
+	final GlyphVector glyphs;
+
+	Fitted(int length, String text, GlyphVector glyphs) {
+	    this.length = length;
+	    this.text = text;
+	    this.glyphs = glyphs;
+	}
+    }
+
+    private final Font font;
+    private final FontRenderContext frc;
+    private final float ellipsisWidth;
+    private final ConcurrentHashMap<String, Label> labels
+	= new ConcurrentHashMap<String, Label>();
+
+    private TreeMapLabels(Font font, FontRenderContext frc) {
+	this.font = font;
+	this.frc = frc;
+	GlyphVector gv = font.createGlyphVector(frc, ELLIPSIS);
+	ellipsisWidth = (float)gv.getLogicalBounds().getWidth();
+    }
+
+    /**
+     * Get the glyphs of a label that fit in the given width.
+     * @return glyphs or null if the label does not fit at all
+     */
+    GlyphVector fit(String text, float width) {
+	Label label = measure(text);
+	if (label.width <= width)
+	    return label.glyphs;
+	Fitted f = truncate(label, width);
+	return f == null ? null : f.glyphs;
+    }
+
+    /**
+     * Get the text of a label that fits in the given width.
+     * @return text or null if the label does not fit at all
+     */
+    String fitText(String text, float width) {
+	Label label = measure(text);
+	if (label.width <= width)
+	    return text;
+	Fitted f = truncate(label, width);
+	return f == null ? null : f.text;
+    }
+
+    private Label measure(String text) {
+	Label label = labels.get(text);
+	if (label != null)
+	    return label;
+	if (labels.size() >= MAX_LABELS)
+	    labels.clear();
+	GlyphVector gv = font.createGlyphVector(frc, text);
+	int n = gv.getNumGlyphs();
+	float[] advances = null;
+	if (n == text.length()) {
+	    advances = new float[n + 1];
+	    float[] pos = gv.getGlyphPositions(0, n + 1, null);
+	    for (int i = 0; i <= n; i++)
+		advances[i] = pos[2 * i];
+	}
+	label = new Label(text, gv, advances);
+	labels.put(text, label);
+	return label;
+    }
+
+    /**
+     * Truncate a label so that it and an ellipsis fit in the given
+     * width.
+     * @return the truncation or null if no characters fit
+     */
+    private Fitted truncate(Label label, float width) {
+	int k = prefix(label, width - ellipsisWidth);
+	if (k > 0 && Character.isHighSurrogate(label.text.charAt(k - 1)))
+	    k--;		// do not split a surrogate pair
+	if (k <= 0)
+	    return null;
+	Fitted f = label.fitted;
+	if (f == null || f.length != k) {
+	    String text = label.text.substring(0, k) + ELLIPSIS;
+	    f = new Fitted(k, text, font.createGlyphVector(frc, text));
+	    label.fitted = f;
+	}
+	return f;
+    }
+
+    /**
+     * Find the length of the longest prefix of a label no wider than
+     * the given width.
+     */
+    private int prefix(Label label, float width) {
+	int lo = 0;
+	int hi = label.text.length();
+	while (lo < hi) {
+	    int mid = (lo + hi + 1) >>> 1;
+	    if (advance(label, mid) <= width)
+		lo = mid;
+	    else
+		hi = mid - 1;
+	}
+	return lo;
+    }
+
+    private float advance(Label label, int k) {
+	if (label.advances != null)
+	    return label.advances[k];
+	return (float)font.getStringBounds(label.text, 0, k, frc).getWidth();
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,759 @@
+package org.mitre.treemap;
+
+import java.awt.*;
+import java.awt.font.GlyphVector;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A TreeMapLayout holds the rectangles of a laid out tree in
+ * primitive arrays indexed by rectangle number.  Rectangles are
+ * numbered in breadth first order, so the children of a rectangle
+ * occupy a contiguous range of indices.  Only the children of
+ * rectangles big enough to be seen are entered into the layout.
+ * <p>
+ * The arrays are reused by each call to layout, and only grow when a
+ * bigger tree is laid out, so layout and paint allocate nothing in
+ * proportion to the tree once the arrays are big enough.
+ * <p>
+ * The layout doubles as a spatial index.  Each rectangle contains
+ * its children, and the children are ordered along the rectangle's
+ * axis, so the rectangles that intersect a region are found by
+ * descending from the root and binary searching the children at
+ * each level.  For hit testing, a uniform grid over the root is built
+ * with each layout.  Each cell of the grid holds the deepest
+ * rectangle that contains the whole cell, so a point is located by
+ * descending from its cell's rectangle, which usually has no
+ * children or only a few levels of them.
+ * <p>
+ * Rectangles narrower or shorter than the level of detail pixel
+ * threshold, or as deep as the depth threshold, are drawn as a
+ * single block.  Their children are not entered into the layout, and
+ * the block is shaded darker the more children it hides.  Blocks
+ * below the pixel threshold get neither outline nor label.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapLayout
+{
+    // Levels with at least this many children are laid out in parallel.
+    private final static int PARALLEL_THRESHOLD = 4096;
+    private final static int INITIAL_CAPACITY = 256;
+    // Number of shades used for blocks that hide children.
+    private final static int SHADES = 8;
+    // Limit on the number of hit testing grid cells.
+    private final static int GRID_CELLS = 1 << 16;
+    private final static int MIN_CELL_SHIFT = 3;
+
+    private final boolean horizontal; // orientation of the root
+    private final int hgap;
+    private final int vgap;
+    private int textHeight;
+    private int lodPixels;	// smaller rectangles are drawn as blocks
+    private int lodDepth;	// deeper rectangles are drawn as blocks
+    private int metric;		// metric giving the weights
+
+    private int n;		// number of rectangles
+    private TreeMapNode[] nodes; // node wrapped by each rectangle
+    private float[] weights;	// weight of each node
+    private int[] depth;	// depth of the rectangle in the tree
+    private int[] first;	// index of first child
+    private int[] count;	// number of children in the layout
+    private int[] hidden;	// number of children left out of a block
+    private int[] xs, ys, widths, heights;
+
+    private int[] grid = new int[0]; // deepest rectangle containing a cell
+    private int gridX, gridY;	// origin of the grid
+    private int gridColumns, gridRows;
+    private int cellShift;	// log base 2 of the cell size
+
+    TreeMapLayout(boolean horizontal, int hgap, int vgap) {
+	this.horizontal = horizontal;
+	this.hgap = hgap;
+	this.vgap = vgap;
+	allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+	nodes = new TreeMapNode[capacity];
+	weights = new float[capacity];
+	depth = new int[capacity];
+	first = new int[capacity];
+	count = new int[capacity];
+	hidden = new int[capacity];
+	xs = new int[capacity];
+	ys = new int[capacity];
+	widths = new int[capacity];
+	heights = new int[capacity];
+    }
+
+    /**
+     * Ensure the arrays have room for the given number of rectangles.
+     */
+    private void ensureCapacity(int capacity) {
+	if (capacity <= nodes.length)
+	    return;
+	int m = Math.max(capacity, nodes.length + (nodes.length >> 1));
+	nodes = Arrays.copyOf(nodes, m);
+	weights = Arrays.copyOf(weights, m);
+	depth = Arrays.copyOf(depth, m);
+	first = Arrays.copyOf(first, m);
+	count = Arrays.copyOf(count, m);
+	hidden = Arrays.copyOf(hidden, m);
+	xs = Arrays.copyOf(xs, m);
+	ys = Arrays.copyOf(ys, m);
+	widths = Arrays.copyOf(widths, m);
+	heights = Arrays.copyOf(heights, m);
+    }
+
+    /**
+     * Set the level of detail thresholds used by the next layout.
+     * @param pixels rectangles with a side shorter than this are
+     * drawn as blocks
+     * @param depth rectangles this deep are drawn as blocks, or zero
+     * for no depth limit
+     */
+    void setLevelOfDetail(int pixels, int depth) {
+	lodPixels = pixels;
+	lodDepth = depth;
+    }
+
+    /**
+     * Set the metric whose weights are used by the next layout.
+     * @see TreeMapMetricNode
+     */
+    void setMetric(int metric) {
+	this.metric = metric;
+    }
+
+    /**
+     * Get the weight of a node under the metric.
+     */
+    private float weight(TreeMapNode node) {
+	if (metric != 0 && node instanceof TreeMapMetricNode)
+	    return ((TreeMapMetricNode)node).getWeight(metric);
+	return node.getWeight();
+    }
+
+    /**
+     * Lay out the tree rooted at the given node within the given
+     * bounds.  Levels of the tree with many rectangles are laid out
+     * on the common fork/join pool.  The result does not depend on
+     * whether the parallel path is taken.
+     */
+    void layout(TreeMapNode root, int x, int y, int width, int height,
+		int textHeight) {
+	TreeMapEvents.LayoutEvent event = new TreeMapEvents.LayoutEvent();
+	event.begin();
+	long began = System.nanoTime();
+	int old = n;
+	this.textHeight = textHeight;
+	nodes[0] = root;
+	weights[0] = weight(root);
+	depth[0] = 0;
+	if (width <= 0 || height <= 0 || weights[0] <= 0.0f)
+	    width = height = 0;
+	setRect(0, x, y, width, height);
+	int start = 0;
+	int end = 1;
+	while (start < end) {	// for each level of the tree
+	    int total = 0;
+	    for (int i = start; i < end; i++) {
+		int c = isSmall(i) ? 0 : childCount(nodes[i]);
+		hidden[i] = 0;
+		if (c > 0 && (isBelowDetail(i)
+			      || (lodDepth > 0 && depth[i] >= lodDepth))) {
+		    hidden[i] = c;
+		    c = 0;
+		}
+		first[i] = end + total;
+		count[i] = c;
+		total += c;
+	    }
+	    ensureCapacity(end + total);
+	    if (total < PARALLEL_THRESHOLD)
+		expand(start, end);
+	    else
+		ForkJoinPool.commonPool().invoke(new LevelTask(start, end));
+	    start = end;
+	    end += total;
+	}
+	n = end;
+	if (old > n)		// drop references to old nodes
+	    Arrays.fill(nodes, n, old, null);
+	buildGrid();
+	TreeMapStats.LAYOUT.record(System.nanoTime() - began, n);
+	event.nodes = n;
+	event.commit();
+    }
+
+    /**
+     * Build the hit testing grid.  Rectangles are visited in
+     * breadth first order, so a cell ends up holding the deepest
+     * rectangle that contains it.
+     */
+    private void buildGrid() {
+	gridX = xs[0];
+	gridY = ys[0];
+	gridColumns = gridRows = 0;
+	if (isSmall(0))
+	    return;
+	int shift = MIN_CELL_SHIFT;
+	while (((widths[0] >> shift) + 1) * ((heights[0] >> shift) + 1)
+	       > GRID_CELLS)
+	    shift++;
+	int size = 1 << shift;
+	cellShift = shift;
+	gridColumns = (widths[0] + size - 1) >> shift;
+	gridRows = (heights[0] + size - 1) >> shift;
+	int cells = gridColumns * gridRows;
+	if (grid.length < cells)
+	    grid = new int[cells];
+	Arrays.fill(grid, 0, cells, 0);
+	for (int i = 1; i < n; i++) {
+	    if (widths[i] < size || heights[i] < size)
+		continue;
+	    // Cells wholly within the rectangle.
+	    int c0 = (xs[i] - gridX + size - 1) >> shift;
+	    int c1 = (xs[i] + widths[i] - gridX) >> shift;
+	    int r0 = (ys[i] - gridY + size - 1) >> shift;
+	    int r1 = (ys[i] + heights[i] - gridY) >> shift;
+	    if (c0 >= c1)
+		continue;
+	    for (int r = r0; r < r1; r++)
+		Arrays.fill(grid, r * gridColumns + c0,
+			    r * gridColumns + c1, i);
+	}
+    }
+
+    /**
+     * Get the number of children of a node to enter into the layout.
+     * The children of a bulk node whose children weigh nothing would
+     * all get a zero size, so they are left out.
+     */
+    private int childCount(TreeMapNode node) {
+	if (metric == 0 && node instanceof TreeMapBulkNode
+	    && ((TreeMapBulkNode)node).getChildWeightTotal() <= 0.0)
+	    return 0;
+	return node.getChildCount();
+    }
+
+    /**
+     * A fork/join task that expands and lays out the children of a
+     * range of rectangles within one level.
+     */
+    private class LevelTask
+	extends RecursiveAction
+    {
+	private final int start, end;
+
+	LevelTask(int start, int end) {
+	    this.start = start;
+	    this.end = end;
+	}
+
+	protected void compute() {
+	    int children = first[end - 1] + count[end - 1] - first[start];
+	    if (end - start < 2 || children < PARALLEL_THRESHOLD)
+		expand(start, end);
+	    else {
+		int mid = (start + end) >>> 1;
+		invokeAll(new LevelTask(start, mid), new LevelTask(mid, end));
+	    }
+	}
+    }
+
+    /**
+     * Enter the children of the rectangles in the given range into
+     * the layout, and set their bounds.
+     */
+    private void expand(int start, int end) {
+	for (int i = start; i < end; i++) {
+	    int k = count[i];
+	    if (k <= 0)
+		continue;
+	    TreeMapNode node = nodes[i];
+	    int f = first[i];
+	    if (node instanceof TreeMapBulkNode) {
+		TreeMapBulkNode bulk = (TreeMapBulkNode)node;
+		bulk.getChildren(0, nodes, f, k);
+		if (metric == 0)
+		    bulk.getChildWeights(0, weights, f, k);
+		else
+		    for (int j = f; j < f + k; j++)
+			weights[j] = weight(nodes[j]);
+	    }
+	    else
+		for (int j = 0; j < k; j++) {
+		    TreeMapNode child = node.getChildAt(j);
+		    nodes[f + j] = child;
+		    weights[f + j] = weight(child);
+		}
+	    Arrays.fill(depth, f, f + k, depth[i] + 1);
+	    setChildBounds(i);
+	}
+    }
+
+    /**
+     * Set the bounds of the children of a rectangle.  Bounds are
+     * first computed assuming all children are big enough, and then
+     * recomputed ignoring children that are too small.  Children that
+     * are too small get a zero size.
+     */
+    private void setChildBounds(int i) {
+	int f = first[i];
+	int k = count[i];
+	int m = setChildBoundsFiltered(i, f, k, k, false);
+	if (m != k && m > 0)
+	    setChildBoundsFiltered(i, f, k, m, true);
+    }
+
+    /**
+     * Set the bounds of children, allocating space for n of them.
+     * When filter is true, children sized zero are skipped.
+     * @return the number of children that are big enough
+     */
+    private int setChildBoundsFiltered(int i, int f, int k, int n,
+				       boolean filter) {
+	double invWeight = 1.0 / weights[i];
+	int x0 = xs[i] + hgap;	// x0, y0 forms the origin of children
+	int y0 = ys[i] + 2 * vgap + textHeight;
+	int m = 0;
+
+	if (isHorizontal(i)) {
+	    // Length is the size that can be allocated to the children.
+	    int length = widths[i] - hgap * (n + 1);
+	    int h0 = heights[i] - 3 * vgap - textHeight;
+	    for (int j = f; j < f + k; j++) {
+		if (filter && widths[j] == 0) {
+		    setRect(j, x0, y0, 0, 0);
+		    continue;
+		}
+		// Compute the ratio of the length for this child.
+		double ratio = weights[j] * invWeight;
+		int w0 = (int)Math.floor(length * ratio);
+		if (w0 <= 1 || h0 <= 1 || weights[j] <= 0.0f)
+		    setRect(j, x0, y0, 0, 0);
+		else {
+		    setRect(j, x0, y0, w0, h0);
+		    m++;
+		}
+		x0 += w0 + hgap;
+	    }
+	}
+	else {			// as above but rotated
+	    int length = heights[i] - vgap * (n + 2) - textHeight;
+	    int w0 = widths[i] - 2 * hgap;
+	    for (int j = f; j < f + k; j++) {
+		if (filter && heights[j] == 0) {
+		    setRect(j, x0, y0, 0, 0);
+		    continue;
+		}
+		double ratio = weights[j] * invWeight;
+		int h0 = (int)Math.floor(length * ratio);
+		if (w0 <= 1 || h0 <= 1 || weights[j] <= 0.0f)
+		    setRect(j, x0, y0, 0, 0);
+		else {
+		    setRect(j, x0, y0, w0, h0);
+		    m++;
+		}
+		y0 += h0 + vgap;
+	    }
+	}
+	return m;
+    }
+
+    private void setRect(int i, int x, int y, int width, int height) {
+	xs[i] = x;
+	ys[i] = y;
+	widths[i] = width;
+	heights[i] = height;
+    }
+
+    private boolean isSmall(int i) {
+	return widths[i] <= 1 || heights[i] <= 1;
+    }
+
+    private boolean isBelowDetail(int i) {
+	return widths[i] < lodPixels || heights[i] < lodPixels;
+    }
+
+    private boolean isHorizontal(int i) {
+	return ((depth[i] & 1) == 0) == horizontal;
+    }
+
+    /**
+     * Get the number of rectangles in the layout.
+     */
+    int size() {
+	return n;
+    }
+
+    /**
+     * Get the node wrapped by a rectangle.
+     * @return the node or null on bad index
+     */
+    TreeMapNode getNode(int i) {
+	if (i < 0 || i >= n)
+	    return null;
+	return nodes[i];
+    }
+
+    /**
+     * Returns the index of the rectangle that wraps the given node,
+     * or -1 when the node is not in the layout.
+     */
+    int indexOf(TreeMapNode node) {
+	if (node != null)
+	    for (int i = 0; i < n; i++)
+		if (nodes[i] == node)
+		    return i;
+	return -1;
+    }
+
+    /**
+     * Get the bounds of a rectangle.
+     * @return the bounds or null on bad index or a rectangle too
+     * small to be seen
+     */
+    Rectangle getBounds(int i) {
+	if (i < 0 || i >= n || isSmall(i))
+	    return null;
+	return new Rectangle(xs[i], ys[i], widths[i], heights[i]);
+    }
+
+    /**
+     * A Painter receives the drawing operations of a layout.
+     */
+    interface Painter
+    {
+	/**
+	 * Fill the background of a rectangle.
+	 */
+	void fill(int x, int y, int width, int height, Color color);
+
+	/**
+	 * Draw the outline of a rectangle and its label, if any.  The
+	 * label should be fitted to the rectangle, leaving a margin on
+	 * the right as wide as the one on the left.
+	 */
+	void outline(int x, int y, int width, int height,
+		     String label, int labelX, int labelY);
+    }
+
+    /**
+     * A painter that draws into a graphics context, clipping each
+     * operation to the intersection of a rectangle and the clip.
+     */
+    private static class GraphicsPainter
+	implements Painter
+    {
+	private final Graphics g;
+	private final Rectangle clip;
+	private final TreeMapLabels labels;
+
+	GraphicsPainter(Graphics g, Rectangle clip) {
+	    this.g = g;
+	    this.clip = clip;
+	    if (g instanceof Graphics2D)
+		labels = TreeMapLabels.getInstance(g.getFont(),
+		    ((Graphics2D)g).getFontRenderContext());
+	    else
+		labels = null;
+	}
+
+	public void fill(int x, int y, int width, int height, Color color) {
+	    g.setColor(color);
+	    g.setClip(clip);
+	    g.clipRect(x, y, width, height);
+	    g.fillRect(x, y, width, height);
+	}
+
+	public void outline(int x, int y, int width, int height,
+			    String label, int labelX, int labelY) {
+	    g.setClip(clip);
+	    g.clipRect(x, y, width, height);
+	    g.setColor(Color.black);
+	    g.drawRect(x, y, width - 1, height - 1);
+	    if (label == null || labelY > y + height)
+		return;
+	    if (labels == null) {
+		g.drawString(label, labelX, labelY);
+		return;
+	    }
+	    GlyphVector glyphs = labels.fit(label, width - 2 * (labelX - x));
+	    if (glyphs != null)
+		((Graphics2D)g).drawGlyphVector(glyphs, labelX, labelY);
+	}
+    }
+
+    /**
+     * Paint the rectangles that intersect the clip of the graphics
+     * context.
+     */
+    void paint(Graphics g, Color background) {
+	if (n == 0)
+	    return;
+	Rectangle clip = g.getClipBounds();
+	boolean unclipped = clip == null;
+	if (unclipped)
+	    clip = new Rectangle(xs[0], ys[0], widths[0], heights[0]);
+	paint(clip, background, new GraphicsPainter(g, clip));
+	g.setClip(unclipped ? null : clip);
+    }
+
+    /**
+     * Paint the rectangles that intersect the clip.  Backgrounds are
+     * filled parents first, and outlines and labels are drawn children
+     * first, so each rectangle is drawn over its parent's background
+     * and under its parent's outline.  Subtrees outside the clip are
+     * not visited.
+     */
+    void paint(Rectangle clip, Color background, Painter p) {
+	if (n == 0 || isSmall(0))
+	    return;
+	int cx0 = clip.x;
+	int cy0 = clip.y;
+	int cx1 = clip.x + clip.width;
+	int cy1 = clip.y + clip.height;
+	if (!intersects(0, cx0, cy0, cx1, cy1))
+	    return;
+	TreeMapEvents.PaintEvent event = new TreeMapEvents.PaintEvent();
+	event.begin();
+	long began = System.nanoTime();
+	int filled = 1;
+	int labeled = 0;
+	// A stack of frames, each holding a rectangle, the next child
+	// to visit, and the end of the children to visit.
+	int[] stack = new int[3 * (depth[n - 1] + 1)];
+	int sp = 0;
+	fill(p, 0, background);
+	sp = push(stack, sp, 0, cx0, cy0, cx1, cy1);
+	while (sp > 0) {
+	    int i = stack[sp - 3];
+	    int j = stack[sp - 2];
+	    if (j < stack[sp - 1]) {
+		stack[sp - 2] = j + 1;
+		if (!isSmall(j) && intersects(j, cx0, cy0, cx1, cy1)) {
+		    fill(p, j, background);
+		    filled++;
+		    sp = push(stack, sp, j, cx0, cy0, cx1, cy1);
+		}
+	    }
+	    else {
+		sp -= 3;
+		if (update(p, i))
+		    labeled++;
+	    }
+	}
+	TreeMapStats.PAINT.record(System.nanoTime() - began, filled);
+	TreeMapStats.rectangles.add(filled);
+	TreeMapStats.labels.add(labeled);
+	event.rectangles = filled;
+	event.labels = labeled;
+	event.commit();
+    }
+
+    /**
+     * Push a frame for a rectangle whose children that intersect the
+     * clip along the rectangle's axis are to be visited.
+     */
+    private int push(int[] stack, int sp, int i,
+		     int cx0, int cy0, int cx1, int cy1) {
+	int f = first[i];
+	int k = count[i];
+	int lo, hi;
+	if (k <= 0)
+	    lo = hi = f;
+	else if (isHorizontal(i)) {
+	    lo = Math.max(f, lastAtOrBefore(xs, f, k, cx0));
+	    hi = lastAtOrBefore(xs, f, k, cx1 - 1) + 1;
+	}
+	else {
+	    lo = Math.max(f, lastAtOrBefore(ys, f, k, cy0));
+	    hi = lastAtOrBefore(ys, f, k, cy1 - 1) + 1;
+	}
+	stack[sp] = i;
+	stack[sp + 1] = lo;
+	stack[sp + 2] = hi;
+	return sp + 3;
+    }
+
+    private boolean intersects(int i, int cx0, int cy0, int cx1, int cy1) {
+	return xs[i] < cx1 && xs[i] + widths[i] > cx0
+	    && ys[i] < cy1 && ys[i] + heights[i] > cy0;
+    }
+
+    /**
+     * Fill the background of one rectangle.
+     */
+    private void fill(Painter p, int i, Color background) {
+	Color color = nodes[i].getColor();
+	if (color == null)
+	    color = background;
+	if (hidden[i] > 0)
+	    color = shade(color, hidden[i]);
+	p.fill(xs[i], ys[i], widths[i], heights[i], color);
+    }
+
+    /**
+     * Paint the outline and label of one rectangle.
+     * @return true if a label was given to the painter
+     */
+    private boolean update(Painter p, int i) {
+	if (isBelowDetail(i))
+	    return false;
+	String label = nodes[i].getLabel();
+	p.outline(xs[i], ys[i], widths[i], heights[i], label,
+		  xs[i] + hgap, ys[i] + vgap + textHeight);
+	return label != null;
+    }
+
+    private final static ConcurrentHashMap<Color, Color[]> shades
+	= new ConcurrentHashMap<Color, Color[]>();
+
+    /**
+     * Get the shade of a color used for a block that hides the given
+     * number of children.  Each doubling of the number of children
+     * darkens the block by one shade, up to half way to black.
+     */
+    private static Color shade(Color color, int children) {
+	Color[] colors = shades.get(color);
+	if (colors == null) {
+	    colors = new Color[SHADES];
+	    for (int k = 0; k < SHADES; k++) {
+		double f = 1.0 - 0.5 * (k + 1) / SHADES;
+		colors[k] = new Color((int)(color.getRed() * f),
+				      (int)(color.getGreen() * f),
+				      (int)(color.getBlue() * f));
+	    }
+	    shades.putIfAbsent(color, colors);
+	}
+	int k = 31 - Integer.numberOfLeadingZeros(children);
+	return colors[Math.min(k, SHADES - 1)];
+    }
+
+    /**
+     * Draw the outline of one rectangle over a painted layout.  The
+     * clip of the graphics context is left alone.
+     */
+    void outline(Graphics g, int i, Color color) {
+	if (i < 0 || i >= n || isSmall(i))
+	    return;
+	g.setColor(color);
+	g.drawRect(xs[i], ys[i], widths[i] - 1, heights[i] - 1);
+    }
+
+    /**
+     * Returns the index of the inner most rectangle at the coordinate
+     * x0, y0, or -1 when the layout is empty.  The descent starts at
+     * the rectangle the grid holds for the point.  A point within a
+     * rectangle is within the area given to its children, so the
+     * result is the same as when descending from the root.  Children
+     * of a rectangle are ordered along its axis, so each level of the
+     * descent is a binary search.
+     */
+    int getRectangleAt(int x0, int y0) {
+	TreeMapEvents.HitTestEvent event = new TreeMapEvents.HitTestEvent();
+	event.begin();
+	long began = System.nanoTime();
+	int i = locate(x0, y0);
+	TreeMapStats.HIT_TEST.record(System.nanoTime() - began, 1);
+	event.x = x0;
+	event.y = y0;
+	event.rectangle = i;
+	event.commit();
+	return i;
+    }
+
+    private int locate(int x0, int y0) {
+	if (n == 0)
+	    return -1;
+	int i = 0;
+	int gx = x0 - gridX;
+	int gy = y0 - gridY;
+	if (gx >= 0 && gy >= 0) {
+	    int c = gx >> cellShift;
+	    int r = gy >> cellShift;
+	    if (c < gridColumns && r < gridRows)
+		i = grid[r * gridColumns + c];
+	}
+	for (;;) {
+	    int j;
+	    if (count[i] <= 0)
+		return i;
+	    else if (isHorizontal(i)) {
+		if (y0 < ys[i] + 2 * vgap + textHeight)	// check vertically
+		    return i;
+		else if (y0 >= ys[i] + heights[i] - vgap)
+		    return i;
+		j = search(xs, widths, first[i], count[i], x0);
+	    }
+	    else {		// as above but rotated
+		if (x0 < xs[i] + hgap)
+		    return i;
+		else if (x0 >= xs[i] + widths[i] - hgap)
+		    return i;
+		j = search(ys, heights, first[i], count[i], y0);
+	    }
+	    if (j < 0)
+		return i;
+	    i = j;
+	}
+    }
+
+    /**
+     * Find the child whose extent along an axis contains p.
+     * @return the child's index or -1 if p is in a gap
+     */
+    private static int search(int[] pos, int[] len, int f, int k, int p) {
+	int found = lastAtOrBefore(pos, f, k, p);
+	if (found >= 0 && p < pos[found] + len[found])
+	    return found;
+	else
+	    return -1;
+    }
+
+    /**
+     * Find the last child that starts at or before p along an axis.
+     * @return the child's index or -1 if there is none
+     */
+    private static int lastAtOrBefore(int[] pos, int f, int k, int p) {
+	int lo = f;
+	int hi = f + k - 1;
+	int found = -1;
+	while (lo <= hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (pos[mid] <= p) {
+		found = mid;
+		lo = mid + 1;
+	    }
+	    else
+		hi = mid - 1;
+	}
+	return found;
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
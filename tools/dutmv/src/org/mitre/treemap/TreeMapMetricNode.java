@@ -0,0 +1,45 @@
+package org.mitre.treemap;
+
+/**
+ * A TreeMapMetricNode is a tree map node with more than one weight.
+ * Each weight is given by a metric number, and metric zero gives the
+ * weight returned by getWeight.  Panels and exporters lay out the
+ * tree using the weights of a chosen metric, so switching metrics
+ * needs only a new layout.  Nodes that do not implement this
+ * interface have the same weight under every metric.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public interface TreeMapMetricNode
+    extends TreeMapNode
+{
+    /**
+     * Get the weight associated with a node under a metric.  The
+     * weight must obey the same rules as the one returned by
+     * getWeight, but with respect to the same metric of the children.
+     * @param metric the metric number
+     * @return the weight
+     */
+    float getWeight(int metric);
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -17,7 +17,6 @@ class TreeMapMouseListener
     // When true, highlights node under the pointer.
     // When false, shows label of node under the pointer in the status line.
     private final static boolean HIGHLIGHT = false;
-    private TreeMapRectangle highlight;
 
     private final TreeMapComponent comp;
 
@@ -25,19 +24,15 @@ class TreeMapMouseListener
 	this.comp = comp;
     }
 
-    private void setHighlight(TreeMapRectangle highlight) {
-	if (this.highlight == highlight)
+    private void setHighlight(int highlight) {
+	if (comp.getHighlight() == highlight)
 	    return;
-	if (this.highlight != null)
-	    this.highlight.setHighlight(false);
-	this.highlight = highlight;
-	if (highlight != null) {
-	    highlight.setHighlight(true);
-	    comp.showStatus(highlight.getNode().getLabel());
-	}
+	comp.setHighlight(highlight);
+	TreeMapNode node = comp.getNode(highlight);
+	if (node != null)
+	    comp.showStatus(node.getLabel());
 	else
 	    comp.showStatus(null);
-	comp.repaint();
     }
 
     public void mouseEntered(MouseEvent e) {
@@ -47,33 +42,33 @@ class TreeMapMouseListener
     public void mouseExited(MouseEvent e) {
 	comp.removeMouseMotionListener(this);
 	if (HIGHLIGHT)
-	    setHighlight(null);
+	    setHighlight(-1);
 	else
 	    comp.showStatus(null);
     }
 
     public void mouseMoved(MouseEvent e) {
-	TreeMapRectangle rect = comp.getRootRectangle();
+	int index = comp.getRectangleAt(e.getX(), e.getY());
 	if (HIGHLIGHT)
-	    setHighlight(rect.getRectangleAt(e.getX(), e.getY()));
+	    setHighlight(index);
 	else {
-	    rect = rect.getRectangleAt(e.getX(), e.getY());
-	    if (rect != null)
-		comp.showStatus(rect.getNode().getLabel());
+	    TreeMapNode node = comp.getNode(index);
+	    if (node != null)
+		comp.showStatus(node.getLabel());
 	    else
 		comp.showStatus(null);
 	}
     }
 
     public void mousePressed(MouseEvent e) {
-	TreeMapRectangle rect = comp.getRootRectangle();
-	rect = rect.getRectangleAt(e.getX(), e.getY());
+	int index = comp.getRectangleAt(e.getX(), e.getY());
 	if (e.getClickCount() > 1) {
-	    if (rect != null)
-		rect.getNode().run();
+	    TreeMapNode node = comp.getNode(index);
+	    if (node != null)
+		node.run();
 	}
 	else
-	    comp.setSelected(rect);
+	    comp.setSelected(index);
     }
 }
 
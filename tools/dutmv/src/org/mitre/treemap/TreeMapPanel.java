@@ -21,6 +21,13 @@ public class TreeMapPanel
      */
     public final static String GO_ACTION
 	= "treemap-go";
+    /**
+     * The {@link javax.swing.ActionMap ActionMap} key for the tree
+     * map refresh action.  The action is enabled only when the
+     * factory is a {@link TreeMapRefreshFactory}.
+     */
+    public final static String REFRESH_ACTION
+	= "treemap-refresh";
     /**
      * The {@link javax.swing.ActionMap ActionMap} key for the tree
      * map stop action.
@@ -112,6 +119,63 @@ public class TreeMapPanel
 		});
     }
 
+    /**
+     * Sets the level of detail.  A rectangle with a side shorter than
+     * the pixel threshold, or at least as deep as the depth threshold,
+     * is drawn as one block shaded by the number of children it
+     * contains, and its children are not drawn.
+     * @param pixels pixel threshold
+     * @param depth depth threshold, or zero for no depth limit
+     */
+    public void setLevelOfDetail(final int pixels, final int depth) {
+	if (SwingUtilities.isEventDispatchThread())
+	    comp.setLevelOfDetail(pixels, depth);
+	else
+	    SwingUtilities.invokeLater(new Runnable() {
+		    public void run() {
+			setLevelOfDetail(pixels, depth);
+		    }
+		});
+    }
+
+    /**
+     * Sets the metric giving the weights of nodes.  The tree is laid
+     * out again using the weights of nodes that implement {@link
+     * TreeMapMetricNode}; other nodes keep their weight.
+     * @param metric the metric number, where zero is the weight
+     * returned by {@link TreeMapNode#getWeight() getWeight}
+     */
+    public void setMetric(final int metric) {
+	if (SwingUtilities.isEventDispatchThread())
+	    comp.setMetric(metric);
+	else
+	    SwingUtilities.invokeLater(new Runnable() {
+		    public void run() {
+			setMetric(metric);
+		    }
+		});
+    }
+
+    /**
+     * Sets the time between automatic refreshes.  A refresh creates
+     * a fresh tree in the background using a {@link
+     * TreeMapRefreshFactory}, and replaces the tree being displayed
+     * while keeping the zoomed in root and the stack of roots.  A
+     * refresh is skipped when an activity is running.  When no tree
+     * is being displayed, the first refresh starts at once.
+     * @param seconds time between refreshes, or zero to stop
+     */
+    public void setRefreshInterval(final int seconds) {
+	if (SwingUtilities.isEventDispatchThread())
+	    actions.setRefreshInterval(seconds);
+	else
+	    SwingUtilities.invokeLater(new Runnable() {
+		    public void run() {
+			setRefreshInterval(seconds);
+		    }
+		});
+    }
+
     /**
      * Get the selected tree map node.
      * @return an array of one tree map node or null
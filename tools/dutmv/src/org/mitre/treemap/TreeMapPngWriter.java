@@ -0,0 +1,156 @@
+package org.mitre.treemap;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A TreeMapPngWriter writes an RGB PNG image one band of rows at a
+ * time, so an image of any size can be written while only one band is
+ * held in memory.  Rows are written with the Sub filter, which suits
+ * the large areas of flat color in a tree map.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapPngWriter
+{
+    private final static byte[] SIGNATURE = {
+	(byte)137, 80, 78, 71, 13, 10, 26, 10
+    };
+    private final static int CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private final DeflaterOutputStream data;
+    private final byte[] row;
+    private int rows;		// number of rows written so far
+
+    /**
+     * Start a PNG image by writing its header.
+     */
+    TreeMapPngWriter(OutputStream out, int width, int height)
+	throws IOException
+    {
+	this.out = new DataOutputStream(out);
+	this.width = width;
+	this.height = height;
+	this.out.write(SIGNATURE);
+	ByteArrayOutputStream header = new ByteArrayOutputStream();
+	DataOutputStream h = new DataOutputStream(header);
+	h.writeInt(width);
+	h.writeInt(height);
+	h.writeByte(8);		// bit depth
+	h.writeByte(2);		// color type RGB
+	h.writeByte(0);		// deflate compression
+	h.writeByte(0);		// adaptive filtering
+	h.writeByte(0);		// no interlace
+	writeChunk("IHDR", header.toByteArray(), header.size());
+	deflater = new Deflater(Deflater.BEST_SPEED);
+	data = new DeflaterOutputStream(new ChunkStream(), deflater,
+					CHUNK_SIZE);
+	row = new byte[1 + 3 * width];
+    }
+
+    /**
+     * Write the rows of an image band.  The band must be as wide as
+     * the PNG image.
+     * @param band the image holding the rows
+     * @param n the number of rows of the band to write
+     */
+    void writeRows(BufferedImage band, int n) throws IOException {
+	int[] pixels = new int[width];
+	for (int y = 0; y < n && rows < height; y++, rows++) {
+	    band.getRGB(0, y, width, 1, pixels, 0, width);
+	    row[0] = 1;		// Sub filter
+	    int r0 = 0, g0 = 0, b0 = 0;
+	    for (int x = 0, k = 1; x < width; x++) {
+		int p = pixels[x];
+		int r = (p >> 16) & 0xff;
+		int g = (p >> 8) & 0xff;
+		int b = p & 0xff;
+		row[k++] = (byte)(r - r0);
+		row[k++] = (byte)(g - g0);
+		row[k++] = (byte)(b - b0);
+		r0 = r;
+		g0 = g;
+		b0 = b;
+	    }
+	    data.write(row);
+	}
+    }
+
+    /**
+     * Finish the image.  The underlying stream is flushed but not
+     * closed.
+     */
+    void finish() throws IOException {
+	if (rows != height)
+	    throw new IOException("PNG image has " + rows + " of "
+				  + height + " rows");
+	data.finish();
+	deflater.end();
+	writeChunk("IEND", new byte[0], 0);
+	out.flush();
+    }
+
+    private void writeChunk(String type, byte[] bytes, int len)
+	throws IOException
+    {
+	byte[] t = type.getBytes("US-ASCII");
+	CRC32 crc = new CRC32();
+	crc.update(t);
+	crc.update(bytes, 0, len);
+	out.writeInt(len);
+	out.write(t);
+	out.write(bytes, 0, len);
+	out.writeInt((int)crc.getValue());
+    }
+
+    /**
+     * Packages compressed data into IDAT chunks.
+     */
+    private class ChunkStream
+	extends OutputStream
+    {
+	public void write(int b) throws IOException {
+	    write(new byte[] { (byte)b }, 0, 1);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException {
+	    if (len <= 0)
+		return;
+	    if (off == 0)
+		writeChunk("IDAT", b, len);
+	    else {
+		byte[] copy = new byte[len];
+		System.arraycopy(b, off, copy, 0, len);
+		writeChunk("IDAT", copy, len);
+	    }
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,96 @@
+package org.mitre.treemap;
+
+import java.awt.EventQueue;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * TreeMapProgress lets a tree creator report its progress.  Messages
+ * published while a panel runs the creator are shown in the panel's
+ * status line.  Messages published faster than they can be shown are
+ * coalesced, so only the latest is shown.  Messages published by
+ * other threads are ignored.  Problems found outside of a creator,
+ * such as a failure to read part of a tree while it is displayed,
+ * are reported instead, and shown in the status line of each panel
+ * on the screen.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public final class TreeMapProgress
+{
+    private final static ThreadLocal<TreeMapTasks> current
+	= new ThreadLocal<TreeMapTasks>();
+    private final static CopyOnWriteArrayList<TreeMapComponent> shown
+	= new CopyOnWriteArrayList<TreeMapComponent>();
+
+    private TreeMapProgress() {
+    }
+
+    /**
+     * Publish a progress message.
+     * @param message text for the status line
+     */
+    public static void publish(String message) {
+	TreeMapTasks tasks = current.get();
+	if (tasks != null)
+	    tasks.publish(message);
+    }
+
+    /**
+     * Report a problem from any thread.  Within a creator, the
+     * message is published; otherwise, it is shown in the status
+     * line of each panel on the screen.
+     * @param message text for the status line
+     */
+    public static void report(final String message) {
+	TreeMapTasks tasks = current.get();
+	if (tasks != null) {
+	    tasks.publish(message);
+	    return;
+	}
+	EventQueue.invokeLater(new Runnable() {
+		public void run() {
+		    for (Iterator<TreeMapComponent> i = shown.iterator();
+			 i.hasNext(); )
+			i.next().showStatus(message);
+		}
+	    });
+    }
+
+    static void show(TreeMapComponent comp) {
+	shown.addIfAbsent(comp);
+    }
+
+    static void hide(TreeMapComponent comp) {
+	shown.remove(comp);
+    }
+
+    static void attach(TreeMapTasks tasks) {
+	current.set(tasks);
+    }
+
+    static void detach() {
+	current.remove();
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,42 @@
+package org.mitre.treemap;
+
+/**
+ * A TreeMapRefreshFactory is a tree creator that can create a fresh
+ * copy of the tree it last created without asking the user anything.
+ * Panels use it to refresh their tree on demand and on a schedule.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public interface TreeMapRefreshFactory
+    extends TreeMapFactory
+{
+    /**
+     * Create a fresh copy of the most recently created tree.  As
+     * with createTree, a return value of null signals failure, and
+     * an implementation should poll the current thread for
+     * interrupts.
+     * @return the new tree or null on failure
+     */
+    TreeMapNode refreshTree();
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,173 @@
+package org.mitre.treemap;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A TreeMapRenderer renders a layout into an image.  The image is
+ * split into square tiles, and each tile is rendered into an image of
+ * its own on the common fork/join pool.  Finished tiles are copied
+ * into the destination image.  Tile images are kept by each pool
+ * thread and reused.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapRenderer
+{
+    private TreeMapRenderer() { } // Everything of interest is static
+
+    private final static int TILE_SIZE = 256; // in device pixels
+
+    private final static ThreadLocal<BufferedImage> tiles
+	= new ThreadLocal<BufferedImage>();
+
+    /**
+     * Render a layout into an image.
+     * @param layout layout to be rendered
+     * @param image destination image in device pixels
+     * @param sx horizontal device pixels per layout pixel
+     * @param sy vertical device pixels per layout pixel
+     * @param font font for labels
+     * @param background color behind the layout
+     * @param hints rendering hints or null
+     */
+    static void render(TreeMapLayout layout, BufferedImage image,
+		       double sx, double sy, Font font, Color background,
+		       Map<?, ?> hints) {
+	render(layout, image, 0, 0, sx, sy, font, background, hints);
+    }
+
+    /**
+     * Render part of a layout into an image.  The image receives the
+     * region of the rendered layout with its upper left corner at the
+     * given origin, which is given in device pixels.
+     */
+    static void render(TreeMapLayout layout, BufferedImage image,
+		       int x0, int y0, double sx, double sy,
+		       Font font, Color background, Map<?, ?> hints) {
+	int w = image.getWidth();
+	int h = image.getHeight();
+	Graphics2D g = image.createGraphics();
+	try {
+	    if (w * h <= 2 * TILE_SIZE * TILE_SIZE) {
+		// Too small to be worth splitting.
+		g.translate(-x0, -y0);
+		renderRegion(layout, g, x0, y0, w, h, sx, sy,
+			     font, background, hints);
+		return;
+	    }
+	    List<TileTask> tasks = new ArrayList<TileTask>();
+	    for (int y = 0; y < h; y += TILE_SIZE)
+		for (int x = 0; x < w; x += TILE_SIZE)
+		    tasks.add(new TileTask(layout, g, x0, y0, x, y,
+					   Math.min(TILE_SIZE, w - x),
+					   Math.min(TILE_SIZE, h - y),
+					   sx, sy, font, background, hints));
+	    ForkJoinTask.invokeAll(tasks);
+	}
+	finally {
+	    g.dispose();
+	}
+    }
+
+    /**
+     * A fork/join task that renders one tile and copies it into the
+     * destination.
+     */
+    private static class TileTask
+	extends RecursiveAction
+    {
+	private final TreeMapLayout layout;
+	private final Graphics2D dest;
+	private final int x0, y0;	// origin of the destination
+	private final int x, y, w, h;
+	private final double sx, sy;
+	private final Font font;
+	private final Color background;
+	private final Map<?, ?> hints;
+
+	TileTask(TreeMapLayout layout, Graphics2D dest, int x0, int y0,
+		 int x, int y, int w, int h, double sx, double sy,
+		 Font font, Color background, Map<?, ?> hints) {
+	    this.layout = layout;
+	    this.dest = dest;
+	    this.x0 = x0;
+	    this.y0 = y0;
+	    this.x = x;
+	    this.y = y;
+	    this.w = w;
+	    this.h = h;
+	    this.sx = sx;
+	    this.sy = sy;
+	    this.font = font;
+	    this.background = background;
+	    this.hints = hints;
+	}
+
+	protected void compute() {
+	    BufferedImage tile = tiles.get();
+	    if (tile == null) {
+		tile = new BufferedImage(TILE_SIZE, TILE_SIZE,
+					 BufferedImage.TYPE_INT_RGB);
+		tiles.set(tile);
+	    }
+	    Graphics2D g = tile.createGraphics();
+	    try {
+		g.translate(-(x0 + x), -(y0 + y));
+		renderRegion(layout, g, x0 + x, y0 + y, w, h, sx, sy,
+			     font, background, hints);
+	    }
+	    finally {
+		g.dispose();
+	    }
+	    synchronized (dest) {
+		dest.drawImage(tile, x, y, x + w, y + h, 0, 0, w, h, null);
+	    }
+	}
+    }
+
+    /**
+     * Render the part of a layout that falls within a region given
+     * in device pixels.
+     */
+    private static void renderRegion(TreeMapLayout layout, Graphics2D g,
+				     int x, int y, int w, int h,
+				     double sx, double sy, Font font,
+				     Color background, Map<?, ?> hints) {
+	if (hints != null)
+	    g.addRenderingHints(hints);
+	g.clipRect(x, y, w, h);
+	g.scale(sx, sy);
+	g.setFont(font);
+	g.setColor(background);
+	Rectangle clip = g.getClipBounds();
+	g.fillRect(clip.x, clip.y, clip.width, clip.height);
+	layout.paint(g, background);
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -13,11 +13,32 @@ public final class TreeMapResources
 {
     private TreeMapResources() { } // Everything of interest is static
 
-    private static ResourceBundle resources;
-
     private final static String TREE_MAP_RESOURCES
 	= "org/mitre/treemap/treemap";
 
+    /**
+     * Holds the bundle, which is loaded when first used by any
+     * thread.  Only properties files are looked for, which saves
+     * searching for a class for each candidate locale.  The bundle
+     * is null when it cannot be found, so that defaults are used.
+     */
+    private static class Bundle
+    {
+	final static ResourceBundle resources = load();
+
+	private static ResourceBundle load() {
+	    try {
+		return ResourceBundle.getBundle(
+		    TREE_MAP_RESOURCES,
+		    ResourceBundle.Control.getControl(
+			ResourceBundle.Control.FORMAT_PROPERTIES));
+	    }
+	    catch (MissingResourceException mre) {
+		return null;
+	    }
+	}
+    }
+
     /**
      * Get a string from a ResourceBundle.
      * @param nm name of key
@@ -27,8 +48,10 @@ public final class TreeMapResources
     static String getResourceString(String nm)
 	throws MissingResourceException
     {
+	ResourceBundle resources = Bundle.resources;
 	if (resources == null)
-	    resources = ResourceBundle.getBundle(TREE_MAP_RESOURCES);
+	    throw new MissingResourceException("No tree map resources",
+					       TREE_MAP_RESOURCES, nm);
 	return resources.getString(nm);
     }
 
@@ -0,0 +1,268 @@
+package org.mitre.treemap;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * TreeMapStats counts and times the phases of the tree map library:
+ * scanning, layout, painting, and hit testing.  Counters are kept in
+ * adders, so tiles painted in parallel do not contend, and the
+ * counters are read through JMX once the statistics are registered.
+ * Each phase is also a Java Flight Recorder event, which costs
+ * nothing more than the counters when no recording is running.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public final class TreeMapStats
+    implements TreeMapStatsMBean
+{
+    /**
+     * The name the statistics are registered under.
+     */
+    public final static String OBJECT_NAME
+	= "org.mitre.treemap:type=TreeMapStats";
+
+    private final static int BUCKETS = 32;
+    private final static double NANOS_PER_MILLI = 1.0e6;
+
+    final static Phase LAYOUT = new Phase();
+    final static Phase PAINT = new Phase();
+    final static Phase HIT_TEST = new Phase();
+    final static Phase SCAN = new Phase();
+    final static LongAdder rectangles = new LongAdder();
+    final static LongAdder labels = new LongAdder();
+
+    private final static TreeMapStats instance = new TreeMapStats();
+    private static boolean registered;
+
+    private TreeMapStats() {
+    }
+
+    /**
+     * Register the statistics with the platform MBean server, if they
+     * are not already registered.  Statistics that cannot be
+     * registered are still kept and recorded.
+     */
+    public static synchronized void register() {
+	if (registered)
+	    return;
+	try {
+	    ManagementFactory.getPlatformMBeanServer()
+		.registerMBean(instance, new ObjectName(OBJECT_NAME));
+	    registered = true;
+	}
+	catch (JMException ex) {
+	}
+    }
+
+    /**
+     * Register the statistics on a background thread.  Starting the
+     * platform MBean server takes long enough to be noticed when an
+     * application starts.
+     */
+    public static void registerLater() {
+	Thread t = new Thread(new Runnable() {
+		public void run() {
+		    register();
+		}
+	    }, "treemap-stats");
+	t.setDaemon(true);
+	t.start();
+    }
+
+    /**
+     * Begin timing a scan made by a tree map factory.
+     * @param source what is scanned, such as a directory
+     */
+    public static Scan beginScan(String source) {
+	return new Scan(source);
+    }
+
+    /**
+     * A scan being timed.
+     */
+    public static final class Scan
+    {
+	private final TreeMapEvents.ScanEvent event
+	    = new TreeMapEvents.ScanEvent();
+	private final long start = System.nanoTime();
+
+	private Scan(String source) {
+	    event.begin();
+	    event.source = source;
+	}
+
+	/**
+	 * End the scan.
+	 * @param entries the number of entries found
+	 */
+	public void end(long entries) {
+	    SCAN.record(System.nanoTime() - start, entries);
+	    event.entries = entries;
+	    event.commit();
+	}
+    }
+
+    /**
+     * The counters of a phase.
+     */
+    static final class Phase
+    {
+	private final LongAdder count = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final LongAdder items = new LongAdder();
+	private final AtomicLongArray histogram
+	    = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Record one operation.
+	 * @param elapsed nanoseconds taken
+	 * @param n items it handled
+	 */
+	void record(long elapsed, long n) {
+	    count.increment();
+	    nanos.add(elapsed);
+	    items.add(n);
+	    long micros = elapsed / 1000;
+	    int k = micros <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+	    histogram.incrementAndGet(Math.min(k, BUCKETS - 1));
+	}
+
+	long count() {
+	    return count.sum();
+	}
+
+	long items() {
+	    return items.sum();
+	}
+
+	double millis() {
+	    return nanos.sum() / NANOS_PER_MILLI;
+	}
+
+	long[] histogram() {
+	    long[] h = new long[BUCKETS];
+	    for (int i = 0; i < BUCKETS; i++)
+		h[i] = histogram.get(i);
+	    return h;
+	}
+
+	void reset() {
+	    count.reset();
+	    nanos.reset();
+	    items.reset();
+	    for (int i = 0; i < BUCKETS; i++)
+		histogram.set(i, 0);
+	}
+    }
+
+    public long getLayoutCount() {
+	return LAYOUT.count();
+    }
+
+    public long getLayoutNodes() {
+	return LAYOUT.items();
+    }
+
+    public double getLayoutMillis() {
+	return LAYOUT.millis();
+    }
+
+    public long[] getLayoutHistogram() {
+	return LAYOUT.histogram();
+    }
+
+    public long getPaintCount() {
+	return PAINT.count();
+    }
+
+    public long getRectanglesPainted() {
+	return rectangles.sum();
+    }
+
+    public long getLabelsDrawn() {
+	return labels.sum();
+    }
+
+    public double getPaintMillis() {
+	return PAINT.millis();
+    }
+
+    public long[] getPaintHistogram() {
+	return PAINT.histogram();
+    }
+
+    public long getHitTestCount() {
+	return HIT_TEST.count();
+    }
+
+    public double getHitTestMillis() {
+	return HIT_TEST.millis();
+    }
+
+    public long[] getHitTestHistogram() {
+	return HIT_TEST.histogram();
+    }
+
+    public long getScanCount() {
+	return SCAN.count();
+    }
+
+    public long getScanEntries() {
+	return SCAN.items();
+    }
+
+    public double getScanMillis() {
+	return SCAN.millis();
+    }
+
+    public double getScanEntriesPerSecond() {
+	double millis = SCAN.millis();
+	return millis > 0.0 ? SCAN.items() * 1000.0 / millis : 0.0;
+    }
+
+    public long[] getScanHistogram() {
+	return SCAN.histogram();
+    }
+
+    public long[] getHistogramBoundsMicros() {
+	long[] bounds = new long[BUCKETS];
+	for (int i = 0; i < BUCKETS; i++)
+	    bounds[i] = 1L << i;
+	bounds[BUCKETS - 1] = Long.MAX_VALUE;
+	return bounds;
+    }
+
+    public void reset() {
+	LAYOUT.reset();
+	PAINT.reset();
+	HIT_TEST.reset();
+	SCAN.reset();
+	rectangles.reset();
+	labels.reset();
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
@@ -0,0 +1,85 @@
+package org.mitre.treemap;
+
+/**
+ * The management interface of {@link TreeMapStats}.  Times are in
+ * milliseconds.  Each histogram counts the operations of a phase by
+ * latency, with bucket k holding latencies below the k'th bound
+ * returned by getHistogramBoundsMicros and at or above the one
+ * before it.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public interface TreeMapStatsMBean
+{
+    long getLayoutCount();
+
+    /**
+     * Get the number of nodes entered into layouts.
+     */
+    long getLayoutNodes();
+
+    double getLayoutMillis();
+
+    long[] getLayoutHistogram();
+
+    /**
+     * Get the number of paint calls, which is the number of tiles
+     * painted when tiles are painted in parallel.
+     */
+    long getPaintCount();
+
+    long getRectanglesPainted();
+
+    long getLabelsDrawn();
+
+    double getPaintMillis();
+
+    long[] getPaintHistogram();
+
+    long getHitTestCount();
+
+    double getHitTestMillis();
+
+    long[] getHitTestHistogram();
+
+    long getScanCount();
+
+    long getScanEntries();
+
+    double getScanMillis();
+
+    double getScanEntriesPerSecond();
+
+    long[] getScanHistogram();
+
+    /**
+     * Get the upper bounds of the histogram buckets in microseconds.
+     */
+    long[] getHistogramBoundsMicros();
+
+    /**
+     * Set every counter and histogram to zero.
+     */
+    void reset();
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
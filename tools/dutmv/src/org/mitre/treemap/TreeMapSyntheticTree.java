@@ -0,0 +1,383 @@
+package org.mitre.treemap;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A TreeMapSyntheticTree creates trees of generated nodes, for load
+ * and scale testing without building directories on disk.  The tree
+ * is determined by a seed, a node count, a depth limit, and two
+ * distributions: one for the number of children of a node, and one
+ * for the relative sizes of siblings.
+ * <p>
+ * A tree is generated top down.  A node knows its weight and the
+ * number of descendants it is to have before any of them exist.
+ * When its children are first asked for, it draws their number and
+ * sizes, divides its weight in proportion to the sizes, and divides
+ * its descendants the same way, so large children become deep
+ * directories and small ones become files.  Each node draws from a
+ * generator seeded by its parent's seed and its index, so the same
+ * tree is produced whatever order its nodes are visited in, and
+ * memory grows with the nodes visited rather than with the nodes in
+ * the tree.  A layout visits only the nodes large enough to be seen,
+ * so trees of tens of millions of nodes can be viewed.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+public class TreeMapSyntheticTree
+    implements TreeMapRefreshFactory
+{
+    private final static Color DIRECTORY_COLOR = Color.white;
+    private final static Color FILE_COLOR = Color.lightGray;
+
+    private long seed;
+    private long nodes;
+    private int maxDepth = Integer.MAX_VALUE;
+    private Distribution fanOut = Distribution.constant(10);
+    private Distribution sizes = Distribution.uniform(1, 10);
+
+    /**
+     * Create a factory for a tree.  Until changed, nodes have ten
+     * children with sizes uniformly distributed between one and ten,
+     * and depth is unlimited.
+     * @param seed seed of the tree
+     * @param nodes number of nodes in the tree, including the root
+     */
+    public TreeMapSyntheticTree(long seed, long nodes) {
+	this.seed = seed;
+	this.nodes = Math.max(1, nodes);
+    }
+
+    /**
+     * Create a factory for a tree described by a specification.  The
+     * specification is a comma separated list of settings, each of
+     * the form <i>key</i>=<i>value</i>.  The keys are seed, nodes,
+     * depth, fanout, and size, and a distribution is given in one of
+     * the forms accepted by {@link Distribution#parse}.  For
+     * example, a tree with a hundred thousand files in one directory
+     * is given by "nodes=100001,fanout=100000", and a ten thousand
+     * deep chain is given by "nodes=10000,fanout=1".
+     * @param spec the specification
+     * @return the factory
+     * @throws IllegalArgumentException on a bad specification
+     */
+    public static TreeMapSyntheticTree parse(String spec) {
+	TreeMapSyntheticTree tree = new TreeMapSyntheticTree(0, 1000000);
+	String[] settings = spec.split(",");
+	for (int i = 0; i < settings.length; i++) {
+	    String setting = settings[i].trim();
+	    if (setting.length() == 0)
+		continue;
+	    int eq = setting.indexOf('=');
+	    if (eq < 0)
+		throw new IllegalArgumentException("Bad setting: " + setting);
+	    String key = setting.substring(0, eq).trim();
+	    String value = setting.substring(eq + 1).trim();
+	    try {
+		if (key.equals("seed"))
+		    tree.seed = Long.parseLong(value);
+		else if (key.equals("nodes"))
+		    tree.nodes = Math.max(1, Long.parseLong(value));
+		else if (key.equals("depth"))
+		    tree.setMaxDepth(Integer.parseInt(value));
+		else if (key.equals("fanout"))
+		    tree.setFanOut(Distribution.parse(value));
+		else if (key.equals("size"))
+		    tree.setSizes(Distribution.parse(value));
+		else
+		    throw new IllegalArgumentException("Unknown key: " + key);
+	    }
+	    catch (NumberFormatException ex) {
+		throw new IllegalArgumentException("Bad setting: " + setting);
+	    }
+	}
+	return tree;
+    }
+
+    /**
+     * Set the distribution of the number of children of a node.
+     * Samples are rounded, and a node with descendants to give has
+     * at least one child.
+     */
+    public void setFanOut(Distribution fanOut) {
+	this.fanOut = fanOut;
+    }
+
+    /**
+     * Set the distribution of the sizes of siblings.  Samples must
+     * be positive.
+     */
+    public void setSizes(Distribution sizes) {
+	this.sizes = sizes;
+    }
+
+    /**
+     * Set the depth of the deepest nodes.  Nodes at this depth are
+     * leaves, so a tree may have fewer nodes than asked for.
+     * @param maxDepth the depth limit, where the root is at depth zero
+     */
+    public void setMaxDepth(int maxDepth) {
+	this.maxDepth = Math.max(0, maxDepth);
+    }
+
+    /**
+     * Create the root of the tree.  Its descendants are generated as
+     * they are visited.
+     */
+    public TreeMapNode createTree() {
+	String label = "synthetic-" + seed;
+	return new Node(this, null, label, seed, nodes - 1, nodes, 0);
+    }
+
+    /**
+     * Create the same tree again.
+     */
+    public TreeMapNode refreshTree() {
+	return createTree();
+    }
+
+    /**
+     * Mix a seed with an index, giving the seed of a child.  This is
+     * the finalizer of the SplitMix generator.
+     */
+    private static long mix(long seed, long index) {
+	long z = seed + (index + 1) * 0x9e3779b97f4a7c15L;
+	z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+	z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+	return z ^ (z >>> 31);
+    }
+
+    /**
+     * A generated node.  Its children are made when first asked for,
+     * and kept, so that each node is a single object.
+     */
+    private static class Node
+	implements TreeMapNode
+    {
+	private final static Node[] NO_CHILDREN = new Node[0];
+
+	private final TreeMapSyntheticTree tree;
+	private final Node parent;
+	private final String label;
+	private final long seed;
+	private final long descendants; // nodes to be generated below
+	private final double weight;
+	private final int depth;
+	private volatile Node[] children;
+
+	Node(TreeMapSyntheticTree tree, Node parent, String label,
+	     long seed, long descendants, double weight, int depth) {
+	    this.tree = tree;
+	    this.parent = parent;
+	    this.label = label;
+	    this.seed = seed;
+	    this.descendants = descendants;
+	    this.weight = weight;
+	    this.depth = depth;
+	}
+
+	public String getLabel() {
+	    return label;
+	}
+
+	public float getWeight() {
+	    return (float)weight;
+	}
+
+	public Color getColor() {
+	    return isLeaf() ? FILE_COLOR : DIRECTORY_COLOR;
+	}
+
+	public TreeMapNode getChildAt(int i) {
+	    Node[] kids = children();
+	    return i < 0 || i >= kids.length ? null : kids[i];
+	}
+
+	public int getChildCount() {
+	    return children().length;
+	}
+
+	public TreeMapNode getParent() {
+	    return parent;
+	}
+
+	public void run() {
+	}
+
+	private boolean isLeaf() {
+	    return descendants <= 0 || depth >= tree.maxDepth;
+	}
+
+	private Node[] children() {
+	    Node[] kids = children;
+	    if (kids == null) {
+		synchronized (this) {
+		    kids = children;
+		    if (kids == null) {
+			kids = generate();
+			children = kids;
+		    }
+		}
+	    }
+	    return kids;
+	}
+
+	/**
+	 * Draw the children, dividing the weight and descendants of
+	 * this node among them in proportion to their sizes.
+	 */
+	private Node[] generate() {
+	    if (isLeaf())
+		return NO_CHILDREN;
+	    Random random = new Random(seed);
+	    long k = Math.round(tree.fanOut.sample(random));
+	    k = Math.max(1, Math.min(k, Math.min(descendants,
+						 Integer.MAX_VALUE - 8)));
+	    int n = (int)k;
+	    double[] shares = new double[n];
+	    double total = 0.0;
+	    for (int i = 0; i < n; i++) {
+		double s = tree.sizes.sample(random);
+		shares[i] = s > 0.0 ? s : Double.MIN_NORMAL;
+		total += shares[i];
+	    }
+	    Node[] kids = new Node[n];
+	    long rest = descendants - n;
+	    double sum = 0.0;	// of the shares before child i
+	    long given = 0;	// descendants given before child i
+	    for (int i = 0; i < n; i++) {
+		sum += shares[i];
+		// Dividing by cumulative shares makes the parts add up.
+		long upto = i == n - 1 ? rest : (long)(rest * (sum / total));
+		long share = Math.max(0, upto - given);
+		given += share;
+		String name = (share > 0 ? "dir" : "file") + i;
+		kids[i] = new Node(tree, this, name, mix(seed, i), share,
+				   weight * shares[i] / total, depth + 1);
+	    }
+	    return kids;
+	}
+    }
+
+    /**
+     * A distribution of positive numbers.
+     */
+    public static abstract class Distribution
+    {
+	/**
+	 * Draw a sample.
+	 * @param random the source of randomness
+	 * @return the sample
+	 */
+	public abstract double sample(Random random);
+
+	/**
+	 * The distribution that always gives the same value.
+	 */
+	public static Distribution constant(final double value) {
+	    return new Distribution() {
+		    public double sample(Random random) {
+			return value;
+		    }
+		};
+	}
+
+	/**
+	 * The uniform distribution between two values.
+	 */
+	public static Distribution uniform(final double low,
+					   final double high) {
+	    return new Distribution() {
+		    public double sample(Random random) {
+			return low + (high - low) * random.nextDouble();
+		    }
+		};
+	}
+
+	/**
+	 * The log-normal distribution, whose logarithm is normally
+	 * distributed with the given mean and standard deviation.
+	 */
+	public static Distribution logNormal(final double mu,
+					     final double sigma) {
+	    return new Distribution() {
+		    public double sample(Random random) {
+			return Math.exp(mu + sigma * random.nextGaussian());
+		    }
+		};
+	}
+
+	/**
+	 * The Zipf distribution over the integers from one to a
+	 * maximum, in which the probability of k is proportional to
+	 * one over k raised to the exponent.  The cumulative
+	 * distribution is tabulated, so the maximum should be no more
+	 * than a few million.
+	 */
+	public static Distribution zipf(final double exponent, int max) {
+	    final double[] cdf = new double[Math.max(1, max)];
+	    double sum = 0.0;
+	    for (int k = 0; k < cdf.length; k++) {
+		sum += Math.pow(k + 1, -exponent);
+		cdf[k] = sum;
+	    }
+	    final double total = sum;
+	    return new Distribution() {
+		    public double sample(Random random) {
+			double u = random.nextDouble() * total;
+			int i = Arrays.binarySearch(cdf, u);
+			return (i < 0 ? -i - 1 : i) + 1;
+		    }
+		};
+	}
+
+	/**
+	 * Parse a distribution.  The forms are a number, for a
+	 * constant, uniform:<i>low</i>:<i>high</i>,
+	 * lognormal:<i>mu</i>:<i>sigma</i>, and
+	 * zipf:<i>exponent</i>:<i>max</i>.
+	 * @throws IllegalArgumentException on a bad distribution
+	 */
+	public static Distribution parse(String s) {
+	    String[] parts = s.split(":");
+	    try {
+		if (parts.length == 1)
+		    return constant(Double.parseDouble(parts[0]));
+		if (parts.length == 3) {
+		    double a = Double.parseDouble(parts[1]);
+		    if (parts[0].equals("uniform"))
+			return uniform(a, Double.parseDouble(parts[2]));
+		    if (parts[0].equals("lognormal"))
+			return logNormal(a, Double.parseDouble(parts[2]));
+		    if (parts[0].equals("zipf"))
+			return zipf(a, Integer.parseInt(parts[2]));
+		}
+	    }
+	    catch (NumberFormatException ex) {
+	    }
+	    throw new IllegalArgumentException("Bad distribution: " + s);
+	}
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
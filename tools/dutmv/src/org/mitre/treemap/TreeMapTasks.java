@@ -0,0 +1,188 @@
+package org.mitre.treemap;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+/**
+ * TreeMapTasks runs tree creators one at a time on a background
+ * thread, and optionally on a schedule.  Progress and completion are
+ * delivered to a client on the event dispatch thread, where all of
+ * the methods of this class must be called.
+ *
+ * @version October 2001
+ * @author John D. Ramsdell
+ */
+final class TreeMapTasks
+{
+    /**
+     * A receiver of task events on the event dispatch thread.
+     */
+    interface Client
+    {
+	/**
+	 * Show a message published by the running task.
+	 */
+	void taskProgress(String message);
+
+	/**
+	 * Receive the result of a task.  Both arguments are null
+	 * when the task was cancelled.
+	 * @param tree the tree created or null
+	 * @param thrown what the task threw or null
+	 */
+	void taskDone(TreeMapNode tree, Throwable thrown);
+    }
+
+    private final static ThreadFactory threads = new ThreadFactory() {
+	    public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, "treemap-task");
+		t.setDaemon(true);
+		return t;
+	    }
+	};
+
+    private final ScheduledExecutorService executor
+	= Executors.newSingleThreadScheduledExecutor(threads);
+    private final Client client;
+    // The latest progress message not yet shown.
+    private final AtomicReference<String> pending
+	= new AtomicReference<String>();
+    private FutureTask<TreeMapNode> running;
+    private ScheduledFuture<?> schedule;
+
+    TreeMapTasks(Client client) {
+	this.client = client;
+    }
+
+    /**
+     * Is a task running or waiting to run?
+     */
+    boolean isRunning() {
+	return running != null;
+    }
+
+    /**
+     * Start a task unless one is running.
+     * @return false if a task was already running
+     */
+    boolean start(final Callable<TreeMapNode> task) {
+	if (running != null)
+	    return false;
+	Callable<TreeMapNode> body = new Callable<TreeMapNode>() {
+		public TreeMapNode call() throws Exception {
+		    TreeMapProgress.attach(TreeMapTasks.this);
+		    try {
+			return task.call();
+		    }
+		    finally {
+			TreeMapProgress.detach();
+		    }
+		}
+	    };
+	running = new FutureTask<TreeMapNode>(body) {
+		protected void done() {
+		    invokeDone(this);
+		}
+	    };
+	executor.execute(running);
+	return true;
+    }
+
+    /**
+     * Cancel the running task, interrupting its thread.
+     * @return false if no task was running
+     */
+    boolean cancel() {
+	if (running == null)
+	    return false;
+	running.cancel(true);
+	return true;
+    }
+
+    private void invokeDone(final FutureTask<TreeMapNode> task) {
+	SwingUtilities.invokeLater(new Runnable() {
+		public void run() {
+		    done(task);
+		}
+	    });
+    }
+
+    private void done(FutureTask<TreeMapNode> task) {
+	if (task != running)
+	    return;
+	running = null;
+	pending.set(null);
+	TreeMapNode tree = null;
+	Throwable thrown = null;
+	if (!task.isCancelled()) {
+	    try {
+		tree = task.get();
+	    }
+	    catch (ExecutionException ee) {
+		thrown = ee.getCause();
+	    }
+	    catch (InterruptedException ie) {
+	    }
+	}
+	client.taskDone(tree, thrown);
+    }
+
+    /**
+     * Run an action on the event dispatch thread periodically,
+     * replacing any previous schedule.
+     * @param action the action
+     * @param delay seconds before the first run
+     * @param period seconds between runs, or zero to stop running
+     */
+    void schedule(final Runnable action, long delay, long period) {
+	if (schedule != null) {
+	    schedule.cancel(false);
+	    schedule = null;
+	}
+	if (period <= 0)
+	    return;
+	Runnable tick = new Runnable() {
+		public void run() {
+		    SwingUtilities.invokeLater(action);
+		}
+	    };
+	schedule = executor.scheduleWithFixedDelay(tick, delay, period,
+						   TimeUnit.SECONDS);
+    }
+
+    /**
+     * Publish a message from the task thread.  Only one delivery is
+     * queued at a time, and it carries the latest message.
+     */
+    void publish(String message) {
+	if (message != null && pending.getAndSet(message) == null)
+	    SwingUtilities.invokeLater(new Runnable() {
+		    public void run() {
+			String message = pending.getAndSet(null);
+			if (message != null && running != null)
+			    client.taskProgress(message);
+		    }
+		});
+    }
+}
+
+/******************************************************************
+A Tree-Map Viewer in Swing.
+Copyright (C) 2001 The MITRE Corporation
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of the GNU Lesser General Public License as
+published by the Free Software Foundation; either version 2 of the
+License, or (at your option) any later version.
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+Lesser General Public License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with this library; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+USA
+*******************************************************************/
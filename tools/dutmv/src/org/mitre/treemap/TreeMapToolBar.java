@@ -39,6 +39,8 @@ public class TreeMapToolBar
 	setBorder(new EmptyBorder(vgap, hgap, vgap, hgap));
 	add(actions.get(TreeMapPanel.GO_ACTION));
 	add(Box.createHorizontalStrut(hgap));
+	add(actions.get(TreeMapPanel.REFRESH_ACTION));
+	add(Box.createHorizontalStrut(hgap));
 	add(actions.get(TreeMapPanel.STOP_ACTION));
 	add(Box.createHorizontalStrut(hgap));
 	add(actions.get(TreeMapPanel.SHOW_CHILDREN_ACTION));